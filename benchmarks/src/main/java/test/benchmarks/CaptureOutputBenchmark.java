@@ -0,0 +1,58 @@
+package test.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.CaptureOutput;
+import test.ExecutionContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Capturing the output of an action that prints lines lines of lineLength characters each
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureOutputBenchmark {
+
+    @Param({ "1", "1000", "100000" })
+    public int lines;
+
+    @Param({ "16", "256" })
+    public int lineLength;
+
+    private String line;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        line = "x".repeat(lineLength);
+    }
+
+    private void print() {
+        for (var i = 0; i < lines; i++) System.out.println(line);
+    }
+
+    @Benchmark
+    public ExecutionContext captureOutput() {
+        return CaptureOutput.captureOutput(this::print);
+    }
+
+    @Benchmark
+    public long captureOutputStreaming() throws IOException {
+        try (var ctx = CaptureOutput.captureOutputStreaming(this::print, 1024 * 1024, null)) {
+            return ctx.out().size();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package test.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.Sandbox;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+// Bringing classpath resources (see src/main/resources/fixture and src/main/resources/sized) into a sandbox, which
+//  is created anew for every invocation so that only the resources are measured, always into an empty directory
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceBenchmark {
+
+    private Sandbox sb;
+
+    // Single resource of resourceSize bytes, for the benchmarks bringing one file
+    @State(Scope.Thread)
+    public static class Resource {
+
+        @Param({ "1024", "65536", "1048576" })
+        public int resourceSize;
+
+        private String path;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            path = "sized/" + resourceSize + ".txt";
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        sb = Sandbox.sandbox();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        sb.cleanup();
+    }
+
+    @Benchmark
+    public File copyResource(Resource resource) {
+        return sb.copyResource(resource.path, "copy/data.txt");
+    }
+
+    @Benchmark
+    public File linkResource(Resource resource) {
+        return sb.linkResource(resource.path, "link/data.txt");
+    }
+
+    @Benchmark
+    public File copyResourceTree() {
+        return sb.copyResourceTree("fixture", "tree");
+    }
+}
@@ -0,0 +1,69 @@
+package test.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.Sandbox;
+import test.SandboxPool;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+// Fixed cost of a sandbox: creating and removing an empty temporal directory, with and without a pool
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SandboxBenchmark {
+
+    private SandboxPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new SandboxPool(16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public File createAndCleanup() {
+        var sb = Sandbox.sandbox();
+        sb.cleanup();
+        return sb.getSandbox();
+    }
+
+    @Benchmark
+    public File createAndCleanupInBackground() {
+        var sb = Sandbox.sandbox();
+        sb.cleanupInBackground();
+        return sb.getSandbox();
+    }
+
+    @Benchmark
+    public File createAndCleanupPooled() {
+        var sb = pool.sandbox();
+        sb.cleanup();
+        return sb.getSandbox();
+    }
+
+    @Benchmark
+    public Object createAndCleanupInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.cleanup();
+        return sb.getRoot();
+    }
+}
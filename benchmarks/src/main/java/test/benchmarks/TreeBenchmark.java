@@ -0,0 +1,105 @@
+package test.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.Sandbox;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Populating a sandbox with createResource (or a batch) and removing it with cleanup, for trees of different shapes:
+//  fileCount files of fileSize bytes each, spread over directories nested depth levels deep
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({ "10", "1000" })
+    public int fileCount;
+
+    @Param({ "16", "65536" })
+    public int fileSize;
+
+    @Param({ "1", "4" })
+    public int depth;
+
+    private byte[] content;
+    private List<String> paths;
+
+    // Sandbox that cleanup will remove, created anew for every invocation of that benchmark only
+    @State(Scope.Thread)
+    public static class Populated {
+
+        private Sandbox sandbox;
+
+        @Setup(Level.Invocation)
+        public void setUp(TreeBenchmark tree) {
+            sandbox = tree.populate(Sandbox.sandbox());
+        }
+
+        // In case the invocation failed before removing it
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            sandbox.cleanup();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUpTree() {
+        content = new byte[fileSize];
+        Arrays.fill(content, (byte) 'x');
+        paths = new ArrayList<>(fileCount);
+        for (var i = 0; i < fileCount; i++) {
+            var path = new StringBuilder();
+            // Three subdirectories on each level
+            for (var level = 1; level < depth; level++) path.append("dir").append((i >> level) % 3).append('/');
+            paths.add(path.append("file").append(i).toString());
+        }
+    }
+
+    private Sandbox populate(Sandbox sb) {
+        for (var path: paths) sb.createResource(path, content);
+        return sb;
+    }
+
+    @Benchmark
+    public File createResources() {
+        var sb = populate(Sandbox.sandbox());
+        sb.cleanup();
+        return sb.getSandbox();
+    }
+
+    // Same tree, created with a single batch
+    @Benchmark
+    public File createBatch() {
+        var sb = Sandbox.sandbox();
+        var batch = sb.batch();
+        for (var path: paths) batch.file(path, content);
+        batch.commit();
+        sb.cleanup();
+        return sb.getSandbox();
+    }
+
+    @Benchmark
+    public File cleanup(Populated populated) {
+        populated.sandbox.cleanup();
+        return populated.sandbox.getSandbox();
+    }
+}
@@ -1,7 +1,9 @@
 package test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -17,9 +19,42 @@ public class CaptureOutput {
         void run() throws Exception;
     }
 
+    // Destinations of System.out and System.err for the threads taking part in a capture, along with the capture that
+    //  was active when it started.  Once over, writes go back to the latter, even from threads that inherited it
+    static final class Capture {
+        final PrintStream out;
+        final PrintStream err;
+        final Capture previous;
+        volatile boolean over = false;
+
+        Capture(PrintStream out, PrintStream err, Capture previous) {
+            this.out = out;
+            this.err = err;
+            this.previous = previous;
+        }
+    }
+
+    // Capture of every thread.  Inheritable, so that threads (platform or virtual) started by the action are captured
+    //  along with it; long-lived threads first created during a capture (e.g. pool workers) inherit it too, which is
+    //  why captures that are over are skipped
+    private final static InheritableThreadLocal<Capture> current = new InheritableThreadLocal<>();
+
+    // Capture the current thread writes to, if any.  An inherited capture that is over is forgotten right away
+    static Capture active() {
+        var inherited = current.get();
+        var ret = inherited;
+        while (ret != null && ret.over) ret = ret.previous;
+        if (ret != inherited) {
+            if (ret == null) current.remove();
+            else current.set(ret);
+        }
+        return ret;
+    }
+
     /**
-     * Will run the lambda passed as parameter while replacing System.out and System.err, in order to capture
-     * whatever the method outputs.  NON THREAD SAFE
+     * Will run the lambda passed as parameter while redirecting System.out and System.err, in order to capture
+     * whatever the method outputs.  Thread safe: the output is captured per thread, so several captures can run
+     * concurrently and each one will only see its own output
      * @param action Lambda that we need to test, in this case one that does not return anything
      * @return Execution context consisting of
      *      - whatever the action returned - null
@@ -31,8 +66,9 @@ public class CaptureOutput {
     }
 
     /**
-     * Will run the lambda passed as parameter while replacing System.out and System.err, in order to capture
-     * whatever the method outputs.  NON THREAD SAFE
+     * Will run the lambda passed as parameter while redirecting System.out and System.err, in order to capture
+     * whatever the method outputs.  Thread safe: the output is captured per thread, so several captures can run
+     * concurrently and each one will only see its own output
      * @param action Lambda that we need to test
      * @return Execution context consisting of
      *      - whatever the action returned
@@ -42,23 +78,105 @@ public class CaptureOutput {
     public static ExecutionContext captureOutput(CouldThrowSomething action) {
         final var myOut = new ByteArrayOutputStream();
         final var myErr = new ByteArrayOutputStream();
-        final PrintStream originalStdOut = System.out;
-        final PrintStream originalErr = System.err;
-        System.setOut(new PrintStream(myOut));
-        System.setErr(new PrintStream(myErr));
-        String standardOutput = "";
-        String errOutput = "";
+        var ret = capture(action, myOut, myErr);
+        return new ExecutionContext(ret, myOut.toString(), myErr.toString());
+    }
+
+    /**
+     * Same as {@link #captureOutput(CouldThrowSomethingVoid)}, but the output is kept in memory only up to a
+     * threshold and spilled to disk beyond it, and is exposed lazily instead of as strings
+     * @param action Lambda that we need to test, in this case one that does not return anything
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param spillDirectory Directory for the outputs that go beyond the threshold.  If null, the default temporal
+     *                       directory
+     * @return Execution context consisting of
+     *      - whatever the action returned - null
+     *      - the standard output
+     *      - the error output
+     *  It should be closed once the output is no longer needed, to remove the outputs spilled to disk
+     */
+    public static StreamingExecutionContext captureOutputStreaming(
+        CouldThrowSomethingVoid action,
+        int memoryThreshold,
+        Path spillDirectory
+    ) {
+        return captureOutputStreaming(() -> { action.run(); return null; }, memoryThreshold, spillDirectory);
+    }
+
+    /**
+     * Same as {@link #captureOutput(CouldThrowSomething)}, but the output is kept in memory only up to a threshold
+     * and spilled to disk beyond it, and is exposed lazily instead of as strings
+     * @param action Lambda that we need to test
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param spillDirectory Directory for the outputs that go beyond the threshold.  If null, the default temporal
+     *                       directory
+     * @return Execution context consisting of
+     *      - whatever the action returned
+     *      - the standard output
+     *      - the error output
+     *  It should be closed once the output is no longer needed, to remove the outputs spilled to disk
+     */
+    public static StreamingExecutionContext captureOutputStreaming(
+        CouldThrowSomething action,
+        int memoryThreshold,
+        Path spillDirectory
+    ) {
+        return captureOutputStreaming(action, memoryThreshold, spillDirectory, false);
+    }
+
+    /**
+     * Same as {@link #captureOutputStreaming(CouldThrowSomething, int, Path)}, indexing the lines of both outputs as
+     * they are written if asked to, see {@link CapturedOutput#index()}
+     * @param action Lambda that we need to test
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param spillDirectory Directory for the outputs that go beyond the threshold.  If null, the default temporal
+     *                       directory
+     * @param indexed If true, the outputs are indexed, which takes about as much heap as the outputs themselves,
+     *                even beyond the memory threshold
+     * @return Execution context consisting of
+     *      - whatever the action returned
+     *      - the standard output
+     *      - the error output
+     *  It should be closed once the output is no longer needed, to remove the outputs spilled to disk
+     */
+    public static StreamingExecutionContext captureOutputStreaming(
+        CouldThrowSomething action,
+        int memoryThreshold,
+        Path spillDirectory,
+        boolean indexed
+    ) {
+        final var myOut = new CapturedOutput(memoryThreshold, spillDirectory, indexed);
+        final var myErr = new CapturedOutput(memoryThreshold, spillDirectory, indexed);
+        var ret = capture(action, myOut.sink(), myErr.sink());
+        return new StreamingExecutionContext(ret, myOut, myErr);
+    }
+
+    // Runs the action with the current thread's System.out and System.err redirected to the given streams
+    static Object capture(CouldThrowSomething action, OutputStream out, OutputStream err) {
+        installDemultiplexers();
+        final var capture = new Capture(new PrintStream(out), new PrintStream(err), active());
+        current.set(capture);
         Object ret = null;
         try {
             ret = action.run();
         } catch (Exception e) {
             fail(e);
         } finally {
-            standardOutput = myOut.toString();
-            errOutput = myErr.toString();
-            System.setOut(originalStdOut);;
-            System.setErr(originalErr);
+            capture.over = true;
+            capture.out.flush();
+            capture.err.flush();
+            if (capture.previous == null) current.remove();
+            else current.set(capture.previous);
         }
-        return new ExecutionContext(ret, standardOutput, errOutput);
+        return ret;
+    }
+
+    // Replaces System.out and System.err, only once, with streams that dispatch every write to the current thread's
+    //  capture.  If somebody else replaced them in the meantime, the new streams are wrapped again
+    private static synchronized void installDemultiplexers() {
+        if (!(System.out instanceof DemultiplexingPrintStream))
+            System.setOut(new DemultiplexingPrintStream(System.out, capture -> capture.out));
+        if (!(System.err instanceof DemultiplexingPrintStream))
+            System.setErr(new DemultiplexingPrintStream(System.err, capture -> capture.err));
     }
 }
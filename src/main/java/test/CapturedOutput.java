@@ -0,0 +1,192 @@
+package test;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Output captured from some stream, kept in memory up to a threshold and spilled to a file beyond it, so that large
+ * outputs do not need to fit in the heap.  It can be read as many times as needed, lazily, through an InputStream,
+ * a Reader or a Stream of lines.  Closing it removes the spill file, if any.
+ */
+public class CapturedOutput implements AutoCloseable {
+
+    private final int threshold;
+    private final Path spillDirectory;
+    private byte[] memory = new byte[256];
+    private int count = 0;
+    private Path spillFile;
+    private OutputStream spill;
+    private long size = 0;
+    // Index of the lines, if asked for, and channel reading the spill file back for its queries
+    private final OutputIndex index;
+    private FileChannel spillReader;
+
+    /**
+     * @param threshold Maximum number of bytes kept in memory
+     * @param spillDirectory Directory where the spill file is created once the threshold is exceeded.  If null, the
+     *                       default temporal directory
+     */
+    CapturedOutput(int threshold, Path spillDirectory) {
+        this(threshold, spillDirectory, false);
+    }
+
+    /**
+     * @param threshold Maximum number of bytes kept in memory
+     * @param spillDirectory Directory where the spill file is created once the threshold is exceeded.  If null, the
+     *                       default temporal directory
+     * @param indexed If true, the lines are indexed as they are written, see {@link #index()}.  The index stays in
+     *                the heap, taking about as much as the output, even once the output is spilled
+     */
+    CapturedOutput(int threshold, Path spillDirectory, boolean indexed) {
+        if (threshold < 0) throw new IllegalArgumentException("Threshold cannot be negative");
+        this.threshold = threshold;
+        this.spillDirectory = spillDirectory;
+        this.index = indexed ? new OutputIndex(this, this::read) : null;
+    }
+
+    // Stream to be written by the code under test
+    OutputStream sink() {
+        return new OutputStream() {
+            @Override public void write(int b) throws IOException { append(new byte[] { (byte) b }, 0, 1); }
+            @Override public void write(byte[] b, int off, int len) throws IOException { append(b, off, len); }
+            @Override public void flush() throws IOException { CapturedOutput.this.flush(); }
+        };
+    }
+
+    synchronized void append(byte[] b, int off, int len) throws IOException {
+        if (spill == null && count + len > threshold) startSpilling();
+        if (spill != null) spill.write(b, off, len);
+        else {
+            if (count + len > memory.length)
+                memory = Arrays.copyOf(memory, Math.min(threshold, Math.max(memory.length * 2, count + len)));
+            System.arraycopy(b, off, memory, count, len);
+            count += len;
+        }
+        size += len;
+        if (index != null) index.append(b, off, len);
+    }
+
+    // Bytes of the output at the given position, called by the index with the lock held
+    private byte[] read(long offset, int length) throws IOException {
+        if (spill == null) return Arrays.copyOfRange(memory, (int) offset, (int) offset + length);
+        spill.flush();
+        if (spillReader == null) spillReader = FileChannel.open(spillFile, StandardOpenOption.READ);
+        var ret = ByteBuffer.allocate(length);
+        while (ret.hasRemaining()) {
+            if (spillReader.read(ret, offset + ret.position()) < 0) throw new EOFException(spillFile.toString());
+        }
+        return ret.array();
+    }
+
+    private void startSpilling() throws IOException {
+        spillFile = spillDirectory == null ?
+            Files.createTempFile("capture", ".out") :
+            Files.createTempFile(Files.createDirectories(spillDirectory), "capture", ".out");
+        spill = new BufferedOutputStream(Files.newOutputStream(spillFile));
+        spill.write(memory, 0, count);
+        memory = null;
+        count = 0;
+    }
+
+    synchronized void flush() throws IOException {
+        if (spill != null) spill.flush();
+    }
+
+    /**
+     * @return Number of bytes captured
+     */
+    public synchronized long size() { return size; }
+
+    /**
+     * @return Index of the lines of the output, updated as it is written
+     * @throws IllegalStateException If the output was not captured with an index
+     */
+    public OutputIndex index() {
+        if (index == null) throw new IllegalStateException("Output not indexed");
+        return index;
+    }
+
+    /**
+     * @return True if the output went beyond the threshold and was written to disk
+     */
+    public synchronized boolean isSpilled() { return spillFile != null; }
+
+    /**
+     * @return New stream reading the whole output from the beginning
+     * @throws UncheckedIOException If the spill file could not be read
+     */
+    public synchronized InputStream inputStream() {
+        if (spill == null) return new ByteArrayInputStream(memory, 0, count);
+        try {
+            spill.flush();
+            return Files.newInputStream(spillFile);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * @return New reader over the whole output, decoded with the default charset, as written by System.out
+     */
+    public Reader reader() {
+        return reader(Charset.defaultCharset());
+    }
+
+    public Reader reader(Charset charset) {
+        return new InputStreamReader(inputStream(), charset);
+    }
+
+    /**
+     * @return Lazy stream of the lines of the output.  Must be closed, as it may hold the spill file open
+     */
+    public Stream<String> lines() {
+        var reader = new BufferedReader(reader());
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        });
+    }
+
+    /**
+     * Reads the whole output into memory, which defeats the purpose of spilling it for large outputs
+     * @return Output as a string, decoded with the default charset
+     */
+    @Override
+    public String toString() {
+        try (var is = inputStream()) {
+            return new String(is.readAllBytes(), Charset.defaultCharset());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Removes the spill file, if any.  The output cannot be read anymore after closing it
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (spill == null) return;
+        if (spillReader != null) spillReader.close();
+        spill.close();
+        Files.deleteIfExists(spillFile);
+    }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Net changes to the files of a sandbox, as recorded by a {@link SandboxJournal}: what was there when the journal
+ * was attached and is gone, what was not and is there now, and the files that were there all along but were written
+ * or replaced.  Files that came and went in between, such as temporary files, do not appear at all.  Changes are
+ * sorted by path, deletions first, whatever the platform
+ * @param changes Every change
+ * @param complete False if the operating system dropped events because there were too many at once, in which case
+ *                 some changes may be missing
+ */
+public record ChangeLog(List<Change> changes, boolean complete) {
+
+    public enum Kind { CREATED, MODIFIED, DELETED }
+
+    /**
+     * @param kind What happened to the file
+     * @param path Relative path of the file or directory in the sandbox, separated by '/'
+     */
+    public record Change(Kind kind, String path) {}
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return Paths of everything created, sorted
+     */
+    public Set<String> created() { return paths(Kind.CREATED); }
+
+    /**
+     * @return Paths of the files modified, sorted
+     */
+    public Set<String> modified() { return paths(Kind.MODIFIED); }
+
+    /**
+     * @return Paths of everything deleted, sorted
+     */
+    public Set<String> deleted() { return paths(Kind.DELETED); }
+
+    public boolean wasCreated(String path) { return contains(Kind.CREATED, path); }
+
+    public boolean wasModified(String path) { return contains(Kind.MODIFIED, path); }
+
+    public boolean wasDeleted(String path) { return contains(Kind.DELETED, path); }
+
+    /**
+     * @param directory Relative path of a directory in the sandbox
+     * @return Changes to the directory and whatever is under it
+     */
+    public ChangeLog under(String directory) {
+        var prefix = directory.endsWith("/") ? directory : directory + "/";
+        return new ChangeLog(
+            changes.stream()
+                .filter(c -> c.path().startsWith(prefix) || c.path().equals(directory))
+                .toList(),
+            complete
+        );
+    }
+
+    private Set<String> paths(Kind kind) {
+        var ret = new LinkedHashSet<String>();
+        for (var change: changes) if (change.kind() == kind) ret.add(change.path());
+        return ret;
+    }
+
+    private boolean contains(Kind kind, String path) {
+        for (var change: changes) if (change.kind() == kind && change.path().equals(path)) return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        var ret = new StringBuilder();
+        for (var change: changes) ret.append(change.kind()).append(' ').append(change.path()).append('\n');
+        if (!complete) ret.append("(incomplete)\n");
+        return ret.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package test;
+
+import java.time.Duration;
+import java.util.List;
+
+// Models the results of running the same test concurrently in several threads, each one in its own sandbox: the
+//  execution context and the duration of each thread, in the order threads were started, and the time it took
+//  for all of them to finish
+public record ConcurrentExecutionContext(
+    List<ExecutionContext> contexts,
+    List<Duration> durations,
+    Duration wallTime
+) {
+
+    public Duration min() {
+        return durations.stream().min(Duration::compareTo).orElse(Duration.ZERO);
+    }
+
+    public Duration max() {
+        return durations.stream().max(Duration::compareTo).orElse(Duration.ZERO);
+    }
+
+    public Duration mean() {
+        if (durations.isEmpty()) return Duration.ZERO;
+        return durations.stream().reduce(Duration.ZERO, Duration::plus).dividedBy(durations.size());
+    }
+
+    // Executions completed per second of wall time
+    public double throughput() {
+        var nanos = wallTime.toNanos();
+        return nanos == 0 ? 0 : contexts.size() * 1e9 / nanos;
+    }
+}
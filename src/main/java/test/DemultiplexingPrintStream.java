@@ -0,0 +1,76 @@
+package test;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Stands in for System.out / System.err and forwards every call to the stream of the active capture of the current
+//  thread, or to the original stream if the thread is not capturing.  Every method is overridden so that no call ever
+//  takes the lock of this shared instance: threads only contend when they write to the same capture
+class DemultiplexingPrintStream extends PrintStream {
+
+    private final PrintStream fallback;
+    // Stream of a capture this one stands for
+    private final Function<CaptureOutput.Capture, PrintStream> stream;
+
+    DemultiplexingPrintStream(PrintStream fallback, Function<CaptureOutput.Capture, PrintStream> stream) {
+        super(fallback);
+        this.fallback = fallback;
+        this.stream = stream;
+    }
+
+    private PrintStream target() {
+        var capture = CaptureOutput.active();
+        return capture != null ? stream.apply(capture) : fallback;
+    }
+
+    @Override public void flush() { target().flush(); }
+    @Override public void close() { target().close(); }
+    @Override public boolean checkError() { return target().checkError(); }
+    @Override public Charset charset() { return target().charset(); }
+
+    @Override public void write(int b) { target().write(b); }
+    @Override public void write(byte[] buf, int off, int len) { target().write(buf, off, len); }
+    @Override public void write(byte[] buf) { target().write(buf, 0, buf.length); }
+    @Override public void writeBytes(byte[] buf) { target().write(buf, 0, buf.length); }
+
+    @Override public void print(boolean b) { target().print(b); }
+    @Override public void print(char c) { target().print(c); }
+    @Override public void print(int i) { target().print(i); }
+    @Override public void print(long l) { target().print(l); }
+    @Override public void print(float f) { target().print(f); }
+    @Override public void print(double d) { target().print(d); }
+    @Override public void print(char[] s) { target().print(s); }
+    @Override public void print(String s) { target().print(s); }
+    @Override public void print(Object obj) { target().print(obj); }
+
+    @Override public void println() { target().println(); }
+    @Override public void println(boolean x) { target().println(x); }
+    @Override public void println(char x) { target().println(x); }
+    @Override public void println(int x) { target().println(x); }
+    @Override public void println(long x) { target().println(x); }
+    @Override public void println(float x) { target().println(x); }
+    @Override public void println(double x) { target().println(x); }
+    @Override public void println(char[] x) { target().println(x); }
+    @Override public void println(String x) { target().println(x); }
+    @Override public void println(Object x) { target().println(x); }
+
+    @Override public PrintStream printf(String format, Object... args) { target().printf(format, args); return this; }
+    @Override public PrintStream printf(Locale l, String format, Object... args) {
+        target().printf(l, format, args);
+        return this;
+    }
+    @Override public PrintStream format(String format, Object... args) { target().format(format, args); return this; }
+    @Override public PrintStream format(Locale l, String format, Object... args) {
+        target().format(l, format, args);
+        return this;
+    }
+
+    @Override public PrintStream append(CharSequence csq) { target().append(csq); return this; }
+    @Override public PrintStream append(CharSequence csq, int start, int end) {
+        target().append(csq, start, end);
+        return this;
+    }
+    @Override public PrintStream append(char c) { target().append(c); return this; }
+}
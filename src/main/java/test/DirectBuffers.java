@@ -0,0 +1,27 @@
+package test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Small pool of direct buffers for writing files through channels, so that large files are written without going
+//  through the heap and without allocating a direct buffer (which is expensive, and only freed on GC) per file
+class DirectBuffers {
+
+    final static int SIZE = 1 << 20;
+    // Buffers kept beyond this number are left to the GC
+    private final static int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final static ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+
+    private DirectBuffers() {}
+
+    // Cleared buffer of SIZE bytes, to be given back once done with it
+    static ByteBuffer take() {
+        var ret = idle.poll();
+        return ret != null ? ret.clear() : ByteBuffer.allocateDirect(SIZE);
+    }
+
+    static void give(ByteBuffer buffer) {
+        if (idle.size() < MAX_IDLE) idle.offer(buffer);
+    }
+}
@@ -0,0 +1,152 @@
+package test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Recursive deletion of directory trees.  Every directory is walked with Files.walkFileTree, deleting its files as they
+//  are visited and forking a new task on the common fork-join pool for each subdirectory, so the tree is never held in
+//  memory and wide trees are deleted in parallel.  A directory is deleted once all of its subdirectories are gone
+class DirectoryRemover {
+
+    // Deletions still running in the background, waited for (for a while) before the JVM exits
+    private final static Set<CompletableFuture<Removed>> pending = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DirectoryRemover::awaitPending));
+    }
+
+    private DirectoryRemover() {}
+
+    // What a removal deleted: number of files (other than directories) and their total size
+    record Removed(long files, long bytes) {}
+
+    /**
+     * Deletes whatever is sitting in the directory, and the directory itself unless told to keep it
+     * @param directory Directory to delete, must not be a symbolic link
+     * @param keepRoot If true, the directory itself is not deleted, only its contents
+     * @return How many files, and bytes, were deleted
+     * @throws IOException If some file could not be deleted
+     */
+    static Removed remove(Path directory, boolean keepRoot) throws IOException {
+        var files = new LongAdder();
+        var bytes = new LongAdder();
+        try {
+            ForkJoinPool.commonPool().invoke(new RemoveTask(directory, keepRoot, files, bytes));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new Removed(files.sum(), bytes.sum());
+    }
+
+    /**
+     * Moves the directory out of the way, to a sibling trash directory, and deletes it in the background.  If it
+     * cannot be moved, it is deleted right away.
+     * @param directory Directory to delete, must not be a symbolic link
+     * @return Future that completes once the directory is completely deleted, with what was deleted
+     */
+    static CompletableFuture<Removed> removeInBackground(Path directory) {
+        Path trash;
+        try {
+            trash = Files.move(
+                directory,
+                directory.resolveSibling(directory.getFileName() + ".trash"),
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (IOException e) {
+            try {
+                return CompletableFuture.completedFuture(remove(directory, false));
+            } catch (IOException ioe) {
+                return CompletableFuture.failedFuture(ioe);
+            }
+        }
+        var ret = CompletableFuture.supplyAsync(() -> {
+            try {
+                return remove(trash, false);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }, ForkJoinPool.commonPool());
+        pending.add(ret);
+        ret.whenComplete((v, t) -> pending.remove(ret));
+        return ret;
+    }
+
+    private static void awaitPending() {
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+            // Whatever is left will stay in the temporal directory
+        }
+    }
+
+    private static class RemoveTask extends RecursiveAction {
+
+        private final Path directory;
+        private final boolean keepRoot;
+        private final LongAdder files;
+        private final LongAdder bytes;
+
+        RemoveTask(Path directory, boolean keepRoot, LongAdder files, LongAdder bytes) {
+            this.directory = directory;
+            this.keepRoot = keepRoot;
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected void compute() {
+            final List<RemoveTask> subdirectories = new ArrayList<>();
+            try {
+                Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (dir.equals(directory)) return FileVisitResult.CONTINUE;
+                        var task = new RemoveTask(dir, false, files, bytes);
+                        task.fork();
+                        subdirectories.add(task);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (Files.deleteIfExists(file)) {
+                            files.increment();
+                            bytes.add(attrs.size());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (exc instanceof NoSuchFileException) return FileVisitResult.CONTINUE;
+                        throw exc;
+                    }
+                });
+                for (var task: subdirectories) task.join();
+                if (!keepRoot) Files.deleteIfExists(directory);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package test;
 
-// Models the results of the execution of some test along with whatever output it generated
+// Models the results of the execution of some test along with whatever output it generated and, if it ran in a
+//  sandbox, the I/O metrics of the sandbox and, if it was tracking them, the changes to its files
 public record ExecutionContext(
     Object result,
     String out,
-    String err
-) {}
+    String err,
+    SandboxMetrics metrics,
+    ChangeLog changes
+) {
+    public ExecutionContext(Object result, String out, String err) {
+        this(result, out, err, null);
+    }
+
+    public ExecutionContext(Object result, String out, String err, SandboxMetrics metrics) {
+        this(result, out, err, metrics, null);
+    }
+}
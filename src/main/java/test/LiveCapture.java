@@ -0,0 +1,249 @@
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Output capture that reports every line as soon as it is written, instead of only once the action is over.  Lines
+ * are split on the writing thread and handed over through a lock-free queue to a dispatcher thread, which is the one
+ * that runs the listeners, so that slow listeners never hold back the code under test.  If a listener fails, the
+ * thread running the action is interrupted and the capture fails with the listener's error.  Can only be used once.
+ * <pre>
+ *     var capture = new LiveCapture().failOn(Channel.ERR, Pattern.compile("FATAL"));
+ *     var future = capture.start(() -> server.run());
+ *     capture.awaitLine(Channel.OUT, Pattern.compile("Started"), Duration.ofSeconds(30));
+ * </pre>
+ */
+public class LiveCapture {
+
+    public enum Channel { OUT, ERR }
+
+    private record Line(Channel channel, String text) {}
+    // Sent to the dispatcher once the action is over
+    private final static Line END = new Line(null, null);
+
+    private final Map<Channel, List<Consumer<String>>> listeners = new EnumMap<>(Channel.class);
+    private final LinkedTransferQueue<Line> queue = new LinkedTransferQueue<>();
+    // Lines already dispatched, for awaitLine
+    private final List<Line> history = new ArrayList<>();
+    private boolean finished = false;
+    private boolean started = false;
+    private volatile Throwable listenerFailure;
+    private volatile Thread actionThread;
+
+    public LiveCapture() {
+        for (var channel: Channel.values()) listeners.put(channel, new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * Registers a listener that will receive every line written to the channel, without its line terminator
+     * @param channel Standard or error output
+     * @param listener Called in the dispatcher thread, in the order the lines were written
+     * @return This capture
+     */
+    public LiveCapture onLine(Channel channel, Consumer<String> listener) {
+        listeners.get(channel).add(listener);
+        return this;
+    }
+
+    /**
+     * Makes the capture fail as soon as a line matching the pattern is written to the channel
+     * @param channel Standard or error output
+     * @param pattern Pattern that is looked for anywhere in every line
+     * @return This capture
+     */
+    public LiveCapture failOn(Channel channel, Pattern pattern) {
+        return onLine(channel, line -> {
+            if (pattern.matcher(line).find()) fail("Unexpected line in " + channel + ": " + line);
+        });
+    }
+
+    /**
+     * Runs the action in the current thread, capturing its output and dispatching its lines as they are written
+     * @param action Lambda that we need to test
+     * @return Execution context consisting of
+     *      - whatever the action returned
+     *      - the standard output
+     *      - the error output
+     */
+    public ExecutionContext run(CaptureOutput.CouldThrowSomething action) {
+        synchronized (this) {
+            if (started) throw new IllegalStateException("A live capture can only be run once");
+            started = true;
+        }
+        var dispatcher = Thread.ofVirtual().name("live-capture").start(this::dispatch);
+        var out = new LineSplitter(Channel.OUT);
+        var err = new LineSplitter(Channel.ERR);
+        Object ret = null;
+        Error actionFailure = null;
+        actionThread = Thread.currentThread();
+        try {
+            ret = CaptureOutput.capture(action, out, err);
+        } catch (Error e) {
+            actionFailure = e;
+        } finally {
+            actionThread = null;
+            out.finish();
+            err.finish();
+            queue.add(END);
+            awaitTermination(dispatcher);
+        }
+        if (listenerFailure != null) {
+            // The action was most likely interrupted by the failure, forget about it
+            Thread.interrupted();
+            if (listenerFailure instanceof Error e) throw e;
+            fail(listenerFailure);
+        }
+        if (actionFailure != null) throw actionFailure;
+        return new ExecutionContext(ret, out.all.toString(), err.all.toString());
+    }
+
+    /**
+     * Runs the action in a new virtual thread, so that the calling thread can wait for lines with awaitLine
+     * @param action Lambda that we need to test
+     * @return Future of the same execution context {@link #run(CaptureOutput.CouldThrowSomething)} returns
+     */
+    public CompletableFuture<ExecutionContext> start(CaptureOutput.CouldThrowSomething action) {
+        var ret = new CompletableFuture<ExecutionContext>();
+        Thread.ofVirtual().name("live-capture-action").start(() -> {
+            try {
+                ret.complete(run(action));
+            } catch (Throwable t) {
+                ret.completeExceptionally(t);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Waits until a line matching the pattern is written to the channel, considering also the lines written before
+     * calling this method.  Fails if the timeout expires or the action ends before
+     * @param channel Standard or error output
+     * @param pattern Pattern that is looked for anywhere in every line
+     * @param timeout Maximum time to wait
+     * @return First matching line
+     */
+    public String awaitLine(Channel channel, Pattern pattern, Duration timeout) {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        var index = 0;
+        synchronized (this) {
+            while (true) {
+                for (; index < history.size(); index++) {
+                    var line = history.get(index);
+                    if (line.channel() == channel && pattern.matcher(line.text()).find()) return line.text();
+                }
+                if (finished) fail("No line matching " + pattern + " was written to " + channel);
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) fail("Timed out waiting for a line matching " + pattern + " in " + channel);
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Line line;
+            try {
+                line = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (line == END) break;
+            if (listenerFailure == null) {
+                for (var listener: listeners.get(line.channel())) {
+                    try {
+                        listener.accept(line.text());
+                    } catch (Throwable t) {
+                        listenerFailure = t;
+                        var thread = actionThread;
+                        if (thread != null) thread.interrupt();
+                        break;
+                    }
+                }
+            }
+            synchronized (this) {
+                history.add(line);
+                notifyAll();
+            }
+        }
+        synchronized (this) {
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    private static void awaitTermination(Thread thread) {
+        var interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Keeps the whole output and splits it into lines on the writing thread, queueing every complete line
+    private class LineSplitter extends OutputStream {
+
+        private final Channel channel;
+        private final ByteArrayOutputStream all = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineSplitter(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) {
+            all.write(b);
+            if (b == '\n') emit();
+            else line.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            all.write(b, off, len);
+            var start = off;
+            for (var i = off; i < off + len; i++) {
+                if (b[i] != '\n') continue;
+                line.write(b, start, i - start);
+                emit();
+                start = i + 1;
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        private void emit() {
+            var text = line.toString();
+            if (text.endsWith("\r")) text = text.substring(0, text.length() - 1);
+            line.reset();
+            queue.offer(new Line(channel, text));
+        }
+
+        // Queues whatever was written after the last line terminator
+        void finish() {
+            if (line.size() > 0) emit();
+        }
+    }
+}
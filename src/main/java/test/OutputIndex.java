@@ -0,0 +1,380 @@
+package test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Index of the lines of some output, built while it is being written, so that checking what it contains does not
+ * need to scan the whole output every time.  Along with the offset of every line, it keeps the hash of every line
+ * and, for every sequence of three characters (trigram), the lines that contain it.  A query only reads the lines
+ * that have every trigram of the text it looks for, which for long outputs are usually very few.  Lines are decoded
+ * with the default charset, as written by System.out, and do not include their line terminator.
+ * <p>
+ * The index lives in the heap even when the output is spilled to disk: 12 bytes per line, plus one or two bytes per
+ * distinct trigram of every line, which for typical logs adds up to about the size of the output itself.
+ * <pre>
+ *     try (var ctx = sb.captureOutput((File dir) -> run(dir), 1 &lt;&lt; 20, true)) {
+ *         var index = ctx.out().index();
+ *         assertEquals(3, index.countMatches("WARN"));
+ *         index.assertContainsInOrder("Starting", "Connected", "Stopped");
+ *     }
+ * </pre>
+ */
+public class OutputIndex {
+
+    // Reads back the bytes of the indexed output
+    @FunctionalInterface
+    interface Content {
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    // Open-addressing map from every trigram to the lines that contain it, in increasing order.  Every line is stored
+    //  as the difference with the previous one, 7 bits per byte, so that lines close to each other take a byte
+    private static class Trigrams {
+
+        private long[] keys = new long[1024];
+        // Null for the free slots
+        private byte[][] postings = new byte[1024][];
+        private int[] lengths = new int[1024];
+        private int[] lastLines = new int[1024];
+        private int size = 0;
+
+        void add(long trigram, int line) {
+            if (4 * size >= 3 * keys.length) grow();
+            var slot = slot(trigram);
+            if (postings[slot] == null) {
+                keys[slot] = trigram;
+                postings[slot] = new byte[4];
+                lastLines[slot] = -1;
+                size++;
+            }
+            var delta = line - lastLines[slot];
+            // Already in the line
+            if (delta == 0) return;
+            lastLines[slot] = line;
+            var bytes = postings[slot];
+            var length = lengths[slot];
+            if (length + 5 > bytes.length) postings[slot] = bytes = Arrays.copyOf(bytes, 2 * bytes.length + 5);
+            for (; delta >= 0x80; delta >>>= 7) bytes[length++] = (byte) (delta & 0x7F | 0x80);
+            bytes[length++] = (byte) delta;
+            lengths[slot] = length;
+        }
+
+        // Lines with the trigram, or null if there are none
+        int[] get(long trigram) {
+            var slot = slot(trigram);
+            var bytes = postings[slot];
+            if (bytes == null) return null;
+            var ret = new int[lengths[slot]];
+            var count = 0;
+            var line = -1;
+            for (var i = 0; i < lengths[slot]; ) {
+                var delta = 0;
+                for (var shift = 0; ; shift += 7) {
+                    var b = bytes[i++];
+                    delta |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                line += delta;
+                ret[count++] = line;
+            }
+            return Arrays.copyOf(ret, count);
+        }
+
+        private int slot(long trigram) {
+            var mask = keys.length - 1;
+            var hash = trigram * 0x9E3779B97F4A7C15L;
+            var ret = (int) (hash ^ (hash >>> 32)) & mask;
+            while (postings[ret] != null && keys[ret] != trigram) ret = (ret + 1) & mask;
+            return ret;
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldPostings = postings;
+            var oldLengths = lengths;
+            var oldLastLines = lastLines;
+            keys = new long[2 * oldKeys.length];
+            postings = new byte[keys.length][];
+            lengths = new int[keys.length];
+            lastLines = new int[keys.length];
+            for (var i = 0; i < oldKeys.length; i++) {
+                if (oldPostings[i] == null) continue;
+                var slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                lengths[slot] = oldLengths[i];
+                lastLines[slot] = oldLastLines[i];
+            }
+        }
+    }
+
+    // Writers of the output and queries of the index hold this lock, so that queries see whole lines only
+    private final Object lock;
+    private final Content content;
+    private final Charset charset = Charset.defaultCharset();
+    // Offset of the first byte of every complete line, and of the line being written
+    private long[] offsets = new long[64];
+    // Hash of every complete line
+    private int[] hashes = new int[64];
+    private int lines = 0;
+    // Bytes of the line being written
+    private byte[] pending = new byte[256];
+    private int pendingLength = 0;
+    private final Trigrams trigrams = new Trigrams();
+
+    OutputIndex(Object lock, Content content) {
+        this.lock = lock;
+        this.content = content;
+    }
+
+    /**
+     * Indexes some output that was already captured, e.g. {@link ExecutionContext#out()}
+     * @param output Whole output
+     * @return Index of its lines
+     */
+    public static OutputIndex of(String output) {
+        var bytes = output.getBytes(Charset.defaultCharset());
+        var ret = new OutputIndex(
+            new Object(),
+            (offset, length) -> Arrays.copyOfRange(bytes, (int) offset, (int) offset + length)
+        );
+        ret.append(bytes, 0, bytes.length);
+        return ret;
+    }
+
+    // Called with the lock held.  Lines written whole are indexed straight from the buffer they were written from
+    void append(byte[] b, int off, int len) {
+        var start = off;
+        for (var i = off; i < off + len; i++) {
+            if (b[i] != '\n') continue;
+            if (pendingLength == 0) endLine(b, start, i - start);
+            else {
+                keep(b, start, i - start);
+                endLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            start = i + 1;
+        }
+        keep(b, start, off + len - start);
+    }
+
+    private void keep(byte[] b, int off, int len) {
+        if (pendingLength + len > pending.length)
+            pending = Arrays.copyOf(pending, Math.max(2 * pending.length, pendingLength + len));
+        System.arraycopy(b, off, pending, pendingLength, len);
+        pendingLength += len;
+    }
+
+    private void endLine(byte[] bytes, int off, int len) {
+        var text = decode(bytes, off, len);
+        if (lines + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            hashes = Arrays.copyOf(hashes, offsets.length);
+        }
+        hashes[lines] = text.hashCode();
+        for (var i = 0; i + 3 <= text.length(); i++) trigrams.add(trigram(text, i), lines);
+        offsets[lines + 1] = offsets[lines] + len + 1;
+        lines++;
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private String decode(byte[] bytes, int off, int len) {
+        if (len > 0 && bytes[off + len - 1] == '\r') len--;
+        return new String(bytes, off, len, charset);
+    }
+
+    /**
+     * @return Number of lines, including the last one even if it is not terminated yet
+     */
+    public int lineCount() {
+        synchronized (lock) {
+            return pendingLength > 0 ? lines + 1 : lines;
+        }
+    }
+
+    /**
+     * @param line Number of the line, from 0
+     * @return The line
+     */
+    public String line(int line) {
+        synchronized (lock) {
+            if (line < 0 || line >= lineCount()) throw new IndexOutOfBoundsException(line);
+            return read(line);
+        }
+    }
+
+    private String read(int line) {
+        if (line == lines) return decode(pending, 0, pendingLength);
+        try {
+            var length = (int) (offsets[line + 1] - offsets[line] - 1);
+            return decode(content.read(offsets[line], length), 0, length);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * @param line Whole line, without its terminator
+     * @return True if some line is exactly the given one
+     */
+    public boolean containsLine(String line) {
+        var hash = line.hashCode();
+        synchronized (lock) {
+            for (var i = 0; i < lines; i++) if (hashes[i] == hash && read(i).equals(line)) return true;
+            return pendingLength > 0 && read(lines).equals(line);
+        }
+    }
+
+    /**
+     * @param text Text to look for
+     * @return Number of lines that contain the text
+     */
+    public int countMatches(String text) {
+        synchronized (lock) {
+            var ret = 0;
+            for (var candidate: candidates(text)) if (read(candidate).contains(text)) ret++;
+            return ret;
+        }
+    }
+
+    /**
+     * Lines that match a regular expression.  Only the lines that have the longest text the expression requires,
+     * if it is simple enough to tell, are checked
+     * @param regex Regular expression, found anywhere in the line
+     * @return Matching lines, in order
+     */
+    public List<String> linesMatching(String regex) {
+        var pattern = Pattern.compile(regex);
+        synchronized (lock) {
+            var ret = new ArrayList<String>();
+            for (var candidate: candidates(requiredLiteral(regex))) {
+                var text = read(candidate);
+                if (pattern.matcher(text).find()) ret.add(text);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * @param texts Texts to look for
+     * @return True if there are lines containing each of the texts, each one after the line of the previous text
+     */
+    public boolean containsInOrder(String... texts) {
+        return findInOrder(texts) == texts.length;
+    }
+
+    /**
+     * Fails unless there are lines containing each of the texts, each one after the line of the previous text
+     * @param texts Texts to look for
+     */
+    public void assertContainsInOrder(String... texts) {
+        var found = findInOrder(texts);
+        if (found == texts.length) return;
+        fail(
+            "Output does not contain \"" + texts[found] + "\""
+                + (found == 0 ? "" : " after a line containing \"" + texts[found - 1] + "\"")
+        );
+    }
+
+    // Number of texts found in order, from the first one
+    private int findInOrder(String... texts) {
+        synchronized (lock) {
+            var after = -1;
+            for (var i = 0; i < texts.length; i++) {
+                var next = -1;
+                for (var candidate: candidates(texts[i])) {
+                    if (candidate > after && read(candidate).contains(texts[i])) {
+                        next = candidate;
+                        break;
+                    }
+                }
+                if (next < 0) return i;
+                after = next;
+            }
+            return texts.length;
+        }
+    }
+
+    // Lines that have every trigram of the text, in order, and the line being written; every line if the text is
+    //  too short to have trigrams
+    private int[] candidates(String text) {
+        int[] ret = null;
+        if (text.length() < 3) {
+            ret = new int[lines];
+            Arrays.setAll(ret, i -> i);
+        } else {
+            for (var i = 0; i + 3 <= text.length() && (ret == null || ret.length > 0); i++) {
+                var postings = trigrams.get(trigram(text, i));
+                if (postings == null) ret = new int[0];
+                else ret = ret == null ? postings : intersect(ret, postings);
+            }
+        }
+        if (pendingLength == 0) return ret;
+        ret = Arrays.copyOf(ret, ret.length + 1);
+        ret[ret.length - 1] = lines;
+        return ret;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        var ret = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                ret[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(ret, count);
+    }
+
+    // Longest run of plain characters that every match of the expression must contain, or "" if the expression is
+    //  not simple enough to tell: alternations, inline flags, and characters that are optional or inside groups,
+    //  classes, escapes or quantifier bounds are never part of it
+    static String requiredLiteral(String regex) {
+        if (regex.indexOf('|') >= 0 || regex.contains("(?")) return "";
+        var best = "";
+        var run = new StringBuilder();
+        var depth = 0;
+        for (var i = 0; i < regex.length(); i++) {
+            var c = regex.charAt(i);
+            var next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+            var plain = Character.isLetterOrDigit(c) || " _-:=,;'\"/<>!@#%&~`".indexOf(c) >= 0;
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+            if (plain && depth == 0 && next != '?' && next != '*' && next != '{') {
+                run.append(c);
+                // Repeated, but at least once
+                if (next != '+') continue;
+            } else if (c == '\\') {
+                // Escapes like \p{Alpha} or \x{263A} take their argument in braces
+                i++;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '{') i = closing(regex, i + 1);
+            } else if (c == '[') {
+                for (i++; i < regex.length() && regex.charAt(i) != ']'; i++) if (regex.charAt(i) == '\\') i++;
+            } else if (c == '{') i = closing(regex, i);
+            if (run.length() > best.length()) best = run.toString();
+            run.setLength(0);
+        }
+        return run.length() > best.length() ? run.toString() : best;
+    }
+
+    // Position of the brace closing the one at the given position, or the end of the expression
+    private static int closing(String regex, int open) {
+        var ret = regex.indexOf('}', open);
+        return ret < 0 ? regex.length() : ret;
+    }
+}
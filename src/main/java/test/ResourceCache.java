@@ -0,0 +1,303 @@
+package test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_WRITE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_WRITE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+
+/**
+ * Process-wide cache of classpath resources.  Each resource is read from the classpath only once, into a read-only
+ * store on disk, and every sandbox that needs it gets it from there, either through a hard link or a channel to
+ * channel copy.  The store is bounded in size: the least recently used resources are evicted from it when needed,
+ * and resources larger than the whole store are not cached at all: they are remembered as such, and read straight
+ * from the classpath every time.
+ */
+public class ResourceCache {
+
+    // Maximum size in bytes of the shared cache, if not overridden by this system property
+    public final static String MAX_BYTES_PROPERTY = "sandbox.resourceCache.maxBytes";
+    private final static long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+    // When the store is in memory, e.g. under /dev/shm, at most this, and at most this fraction of the free memory
+    private final static long IN_MEMORY_MAX_BYTES = 128L * 1024 * 1024;
+    private final static int IN_MEMORY_FRACTION = 16;
+    private final static Set<String> IN_MEMORY_FILE_STORES = Set.of("tmpfs", "ramfs");
+
+    private static ResourceCache shared;
+
+    private final long maxBytes;
+    private Path store;
+    // In access order, so that the first entry is always the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    // Resources larger than the whole store
+    private final Set<String> uncacheable = new HashSet<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Cached copy of a resource, filled in by the first thread that needs it
+    private static class Entry {
+        Path file;
+        long size;
+    }
+
+    /**
+     * Statistics of the usage of the cache
+     * @param hits Number of requests served from the store
+     * @param misses Number of requests that had to read the resource from the classpath
+     * @param entries Number of resources currently in the store
+     * @param bytes Size in bytes of the resources currently in the store
+     */
+    public record Statistics(long hits, long misses, int entries, long bytes) {}
+
+    /**
+     * Creates a cache whose store will never go beyond the given size
+     * @param maxBytes Maximum size in bytes of the store; if 0, nothing is cached
+     */
+    public ResourceCache(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("Cache size cannot be negative");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Process-wide cache used by {@link Sandbox#copyResource(String, String)} and the like, bounded by the
+     * <code>sandbox.resourceCache.maxBytes</code> system property.  By default, 512 MiB, or if the base directory of
+     * the sandboxes is in memory (see {@link SandboxLocation}), 128 MiB or a sixteenth of the free memory, whatever
+     * is smaller.  Its store is removed on JVM shutdown
+     * @return Shared cache
+     */
+    public static synchronized ResourceCache shared() {
+        if (shared == null) {
+            var maxBytes = Long.getLong(MAX_BYTES_PROPERTY);
+            shared = new ResourceCache(
+                maxBytes != null ? maxBytes : defaultMaxBytes(SandboxLocation.baseDirectory())
+            );
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::clear));
+        }
+        return shared;
+    }
+
+    // Default size of a store under the given base directory
+    static long defaultMaxBytes(Path baseDirectory) {
+        var existing = baseDirectory;
+        while (existing != null && !Files.isDirectory(existing)) existing = existing.getParent();
+        if (existing == null) return DEFAULT_MAX_BYTES;
+        try {
+            var fileStore = Files.getFileStore(existing);
+            if (!IN_MEMORY_FILE_STORES.contains(fileStore.type())) return DEFAULT_MAX_BYTES;
+            return Math.min(IN_MEMORY_MAX_BYTES, fileStore.getUsableSpace() / IN_MEMORY_FRACTION);
+        } catch (IOException e) {
+            return DEFAULT_MAX_BYTES;
+        }
+    }
+
+    public Statistics statistics() {
+        synchronized (this) {
+            return new Statistics(hits.get(), misses.get(), entries.size(), bytes);
+        }
+    }
+
+    /**
+     * Copies a classpath resource to the target path, through a channel to channel transfer from the store
+     * @param resourcePath Classpath path of the resource, starting with '/'
+     * @param target Path of the new file; must not exist, its parent directory must
+     * @return False if the resource does not exist
+     * @throws IOException If the resource could not be read or copied
+     */
+    public boolean copyTo(String resourcePath, Path target) throws IOException {
+        return populate(resourcePath, target, false);
+    }
+
+    /**
+     * Brings a classpath resource to the target path as a hard link to its copy in the store, which is read-only, so
+     * the new file is read-only too.  If the target cannot be linked (e.g., it lives in another filesystem), the
+     * resource is copied and made read-only
+     * @param resourcePath Classpath path of the resource, starting with '/'
+     * @param target Path of the new file; must not exist, its parent directory must
+     * @return False if the resource does not exist
+     * @throws IOException If the resource could not be read, linked or copied
+     */
+    public boolean linkTo(String resourcePath, Path target) throws IOException {
+        return populate(resourcePath, target, true);
+    }
+
+    private boolean populate(String resourcePath, Path target, boolean link) throws IOException {
+        // The cached file may be evicted by another thread right before using it, in which case it is brought again
+        while (true) {
+            var cached = lookup(resourcePath);
+            if (cached == null) {
+                // Not cached, straight from the classpath
+                try (var is = open(resourcePath)) {
+                    if (is == null) return false;
+                    Files.copy(is, target);
+                }
+                if (link) makeReadOnly(target);
+                return true;
+            }
+            try {
+                if (link && tryLink(cached, target)) return true;
+                transfer(cached, target);
+                if (link) makeReadOnly(target);
+                return true;
+            } catch (NoSuchFileException e) {
+                if (Files.exists(cached)) throw e;
+            }
+        }
+    }
+
+    // Returns the cached copy of the resource, reading it into the store first if needed.  Null if the resource does
+    //  not exist or is not cacheable
+    private Path lookup(String resourcePath) throws IOException {
+        if (maxBytes == 0) return null;
+        Entry entry;
+        synchronized (this) {
+            if (uncacheable.contains(resourcePath)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            entry = entries.get(resourcePath);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(resourcePath, entry);
+            }
+        }
+        synchronized (entry) {
+            if (entry.file != null) {
+                hits.incrementAndGet();
+                return entry.file;
+            }
+            misses.incrementAndGet();
+            var url = ResourceCache.class.getResource(resourcePath);
+            if (url == null) {
+                forget(resourcePath, entry, false);
+                return null;
+            }
+            try {
+                var connection = url.openConnection();
+                // Known beforehand for resources in directories and jars, so that they are not copied for nothing
+                var tooLarge = connection.getContentLengthLong() > maxBytes;
+                if (!tooLarge) {
+                    try (var is = connection.getInputStream()) {
+                        tooLarge = !materialize(is, entry);
+                    }
+                }
+                if (tooLarge) {
+                    forget(resourcePath, entry, true);
+                    return null;
+                }
+            } catch (IOException e) {
+                forget(resourcePath, entry, false);
+                throw e;
+            }
+            return entry.file;
+        }
+    }
+
+    // Copies the resource into the store, unless it is too large to be cached.  Evicts other entries if needed
+    private boolean materialize(InputStream is, Entry entry) throws IOException {
+        var file = Files.createTempFile(store(), "resource", null);
+        var size = Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+        if (size > maxBytes) {
+            Files.delete(file);
+            return false;
+        }
+        makeReadOnly(file);
+        entry.file = file;
+        entry.size = size;
+        synchronized (this) {
+            bytes += size;
+            var iterator = entries.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                var eldest = iterator.next();
+                if (eldest == entry || eldest.file == null) continue;
+                iterator.remove();
+                bytes -= eldest.size;
+                Files.deleteIfExists(eldest.file);
+            }
+        }
+        return true;
+    }
+
+    private synchronized void forget(String resourcePath, Entry entry, boolean tooLarge) {
+        entries.remove(resourcePath, entry);
+        if (tooLarge) uncacheable.add(resourcePath);
+    }
+
+    // Under the base directory of the sandboxes, so that they can be linked to the store
+    private synchronized Path store() throws IOException {
+        if (store == null) {
+            var baseDirectory = SandboxLocation.baseDirectory();
+            SandboxReaper.start(baseDirectory);
+            store = Files.createTempDirectory(
+                Files.createDirectories(baseDirectory),
+                SandboxReaper.OWNER + "resources-"
+            );
+        }
+        return store;
+    }
+
+    /**
+     * Empties the store
+     */
+    public synchronized void clear() {
+        entries.clear();
+        uncacheable.clear();
+        bytes = 0;
+        if (store == null) return;
+        try {
+            DirectoryRemover.remove(store, false);
+        } catch (IOException ignored) {
+            // Whatever is left will stay in the temporal directory
+        }
+        store = null;
+    }
+
+    private static InputStream open(String resourcePath) {
+        return ResourceCache.class.getResourceAsStream(resourcePath);
+    }
+
+    static boolean tryLink(Path cached, Path target) throws NoSuchFileException {
+        try {
+            Files.createLink(target, cached);
+            return true;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException | ProviderMismatchException e) {
+            // Another filesystem or device, or no support for links at all
+            return false;
+        }
+    }
+
+    static void transfer(Path source, Path target) throws IOException {
+        try (var from = FileChannel.open(source, READ); var to = FileChannel.open(target, CREATE_NEW, WRITE)) {
+            var size = from.size();
+            var position = 0L;
+            while (position < size) position += from.transferTo(position, size - position, to);
+        }
+    }
+
+    static void makeReadOnly(Path file) throws IOException {
+        var posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (posix != null) {
+            var permissions = posix.readAttributes().permissions();
+            permissions.removeAll(Set.of(OWNER_WRITE, GROUP_WRITE, OTHERS_WRITE));
+            posix.setPermissions(permissions);
+        } else if (file.getFileSystem() == FileSystems.getDefault()) file.toFile().setReadOnly();
+    }
+}
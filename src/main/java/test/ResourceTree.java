@@ -0,0 +1,171 @@
+package test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+
+// Listing of every file and directory under some directory of the classpath, merging all the classpath entries
+//  (exploded directories or jar files) that contain it.  If several entries have the same file, the first one wins.
+//  Keeps the jar files it reads open until closed
+class ResourceTree implements Closeable {
+
+    // Some file in the tree, either in an exploded directory (path is not null) or inside a jar file
+    interface Source {
+        InputStream open() throws IOException;
+        long size() throws IOException;
+        // Null if the source is not a file in the default filesystem
+        Path path();
+    }
+
+    private final SortedMap<String, Source> files = new TreeMap<>();
+    private final SortedSet<String> directories = new TreeSet<>();
+    private final List<JarFile> jars = new ArrayList<>();
+
+    private ResourceTree() {}
+
+    /**
+     * Lists the given directory of the classpath
+     * @param classLoader Class loader whose classpath is listed
+     * @param classpathDir Directory in the classpath, with or without a leading '/'
+     * @return Tree with the relative paths (separated by '/') of the files and directories in it, or null if the
+     *      directory does not exist in the classpath
+     * @throws IOException If the classpath could not be read
+     */
+    static ResourceTree open(ClassLoader classLoader, String classpathDir) throws IOException {
+        var dir = classpathDir;
+        while (dir.startsWith("/")) dir = dir.substring(1);
+        while (dir.endsWith("/")) dir = dir.substring(0, dir.length() - 1);
+        var ret = new ResourceTree();
+        var found = false;
+        try {
+            var urls = classLoader.getResources(dir);
+            while (urls.hasMoreElements()) {
+                var url = urls.nextElement();
+                switch (url.getProtocol()) {
+                    case "file" -> ret.addDirectory(url);
+                    case "jar" -> ret.addJar(url);
+                    default -> throw new IOException("Unsupported classpath entry " + url);
+                }
+                found = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            ret.close();
+            throw e;
+        }
+        if (!found) return null;
+        return ret;
+    }
+
+    // Relative paths of the files in the tree, sorted, along with their sources
+    SortedMap<String, Source> files() { return files; }
+
+    // Relative paths of the directories in the tree, sorted so that every directory comes after its parent
+    SortedSet<String> directories() { return directories; }
+
+    /**
+     * Copies the whole tree under the target directory.  Directories are created once, parents first, and then files
+     * are copied in parallel
+     * @param target Directory the tree is copied into, created if needed.  None of the files may exist in it
+     * @return Number of bytes copied
+     * @throws IOException If some file could not be copied
+     */
+    long copyTo(Path target) throws IOException {
+        Files.createDirectories(target);
+        for (var directory: directories) {
+            var path = target.resolve(directory);
+            if (!Files.isDirectory(path)) Files.createDirectory(path);
+        }
+        try {
+            return files.entrySet().parallelStream().mapToLong(entry -> {
+                var to = target.resolve(entry.getKey());
+                var source = entry.getValue();
+                try {
+                    if (source.path() == null) try (var is = source.open()) {
+                        return Files.copy(is, to);
+                    }
+                    Files.copy(source.path(), to);
+                    return Files.size(to);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void addDirectory(URL url) throws IOException {
+        Path root;
+        try {
+            root = Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (!Files.isDirectory(root)) throw new IOException(url + " is not a directory");
+        try (var paths = Files.walk(root)) {
+            paths.filter(p -> !p.equals(root)).forEach(p -> {
+                var relative = root.relativize(p).toString().replace(p.getFileSystem().getSeparator(), "/");
+                if (Files.isDirectory(p)) directories.add(relative);
+                else files.putIfAbsent(relative, new Source() {
+                    @Override public InputStream open() throws IOException { return Files.newInputStream(p); }
+                    @Override public long size() throws IOException { return Files.size(p); }
+                    @Override public Path path() { return p; }
+                });
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void addJar(URL url) throws IOException {
+        var connection = (JarURLConnection) url.openConnection();
+        // Otherwise the jar file would be shared with whoever else is using it, and could not be closed
+        connection.setUseCaches(false);
+        var jar = connection.getJarFile();
+        jars.add(jar);
+        var prefix = connection.getEntryName() + "/";
+        var entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            var entry = entries.nextElement();
+            if (!entry.getName().startsWith(prefix) || entry.getName().equals(prefix)) continue;
+            var relative = entry.getName().substring(prefix.length());
+            if (entry.isDirectory()) directories.add(relative.substring(0, relative.length() - 1));
+            else {
+                // Not every jar has entries for its directories
+                for (var i = relative.indexOf('/'); i >= 0; i = relative.indexOf('/', i + 1))
+                    directories.add(relative.substring(0, i));
+                files.putIfAbsent(relative, new Source() {
+                    @Override public InputStream open() throws IOException { return jar.getInputStream(entry); }
+                    @Override public long size() { return entry.getSize(); }
+                    @Override public Path path() { return null; }
+                });
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (var jar: jars) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+}
@@ -1,30 +1,144 @@
 package test;
 
-import java.io.ByteArrayInputStream;
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class Sandbox {
 
     private final static AtomicInteger testCounter = new AtomicInteger(1);
-    final File sandbox = createTempDirectory();
+    // Output of external processes kept in memory, beyond which it goes to disk until the process is over
+    private final static int EXEC_MEMORY_THRESHOLD = 1 << 20;
+    // Only available when the sandbox lives in the default filesystem
+    final File sandbox;
+    final Path root;
+    // Pool the sandbox directory is returned to on cleanup, if any
+    private final SandboxPool pool;
+    // Filesystem created just for this sandbox, closed on cleanup
+    private final FileSystem ownFileSystem;
+    private final SandboxMetrics metrics;
+    // Suffixes of the companion directories handed out so far
+    private final Set<String> companions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger snapshotCounter = new AtomicInteger();
+    private final AtomicInteger journalCounter = new AtomicInteger();
+    // Whether runTest records the changes to the files of the sandbox
+    private volatile boolean trackChanges = false;
+    // Set by the first cleanup, later ones do nothing
+    private final AtomicBoolean cleanedUp = new AtomicBoolean();
+    // While set, cleanups do nothing
+    private volatile boolean retained = false;
+
+    /**
+     * @return Root directory of the sandbox
+     * @throws UnsupportedOperationException If the sandbox does not live in the default filesystem, in which case
+     *      {@link #getRoot()} must be used instead
+     */
+    public File getSandbox() {
+        if (sandbox == null) throw new UnsupportedOperationException("Not in the default filesystem, use getRoot()");
+        return sandbox;
+    }
 
-    public File getSandbox() { return sandbox; }
+    /**
+     * @return Root directory of the sandbox, whatever the filesystem it lives in
+     */
+    public Path getRoot() { return root; }
+
+    /**
+     * @return I/O metrics of the sandbox so far; complete once it has been cleaned up
+     */
+    public SandboxMetrics metrics() { return metrics; }
 
-    private Sandbox() {
+    // creationStart: System.nanoTime() right before the directory of the sandbox started to be created
+    Sandbox(File sandbox, SandboxPool pool, long creationStart) {
+        this.sandbox = sandbox;
+        this.root = sandbox.toPath();
+        this.pool = pool;
+        this.ownFileSystem = null;
+        this.metrics = new SandboxMetrics(creationStart);
     }
 
+    private Sandbox(Path root, FileSystem ownFileSystem, long creationStart) {
+        this.sandbox = root.getFileSystem() == FileSystems.getDefault() ? root.toFile() : null;
+        this.root = root;
+        this.pool = null;
+        this.ownFileSystem = ownFileSystem;
+        this.metrics = new SandboxMetrics(creationStart);
+    }
+
+    /**
+     * Creates a sandbox in a temporal directory under the base directory given by the <code>sandbox.base</code>
+     * system property, see {@link SandboxLocation}
+     * @return Sandbox in the default filesystem
+     */
     public static Sandbox sandbox() {
-        return new Sandbox();
+        var start = System.nanoTime();
+        return new Sandbox(createTempDirectory(), null, start);
+    }
+
+    /**
+     * Creates a sandbox in a temporal directory under the given base directory, which is created if needed
+     * @param baseDirectory Directory the sandbox will live in, of whatever filesystem
+     * @return Sandbox under the given directory
+     */
+    public static Sandbox sandbox(Path baseDirectory) {
+        var start = System.nanoTime();
+        return new Sandbox(createTempDirectory(baseDirectory), null, start);
+    }
+
+    /**
+     * Creates a sandbox in a temporal directory of the given filesystem.  Files in a sandbox that does not live in
+     * the default filesystem must be handled through the Path based methods, e.g. {@link #getRoot()} or
+     * {@link #runTestInRoot(RunnableInRoot)}
+     * @param fileSystem Filesystem the sandbox will live in.  It is not closed by the sandbox
+     * @return Sandbox in the given filesystem
+     */
+    public static Sandbox sandbox(FileSystem fileSystem) {
+        var start = System.nanoTime();
+        return new Sandbox(createTempDirectory(fileSystem), null, start);
+    }
+
+    /**
+     * Creates a sandbox in a brand-new in-memory filesystem of its own, which is discarded on cleanup.  Files in it
+     * must be handled through the Path based methods, e.g. {@link #getRoot()} or
+     * {@link #runTestInRoot(RunnableInRoot)}
+     * @return Sandbox in memory
+     */
+    public static Sandbox inMemory() {
+        var start = System.nanoTime();
+        var fileSystem = Jimfs.newFileSystem(Configuration.unix());
+        return new Sandbox(createTempDirectory(fileSystem), fileSystem, start);
     }
 
     @FunctionalInterface
@@ -37,6 +151,21 @@ public class Sandbox {
         void run(File directory) throws Exception;
     }
 
+    @FunctionalInterface
+    public interface RunnableInRoot {
+        Object run(Path root) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface RunnableInRootVoid {
+        void run(Path root) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface RunnableInSandbox {
+        Object run(Sandbox sandbox) throws Exception;
+    }
+
     /**
      * Will run the specified lambda in a temporal directory.  This temporal directory is created and disposed of
      * in a thread-safe manner.
@@ -63,11 +192,26 @@ public class Sandbox {
         return runTest(action, false);
     }
 
-    // Creates a temporal sandbox in which we will run tests
-    private static File createTempDirectory() {
-        File ret;
+    // Creates a temporal sandbox in which we will run tests, under the base directory of the sandboxes
+    static File createTempDirectory() {
+        return createTempDirectory(SandboxLocation.baseDirectory()).toFile();
+    }
+
+    // Creates a temporal sandbox in the given filesystem: under the base directory of the sandboxes if it is the
+    //  default filesystem, otherwise in /tmp (or the equivalent under its first root)
+    private static Path createTempDirectory(FileSystem fileSystem) {
+        if (fileSystem == FileSystems.getDefault()) return createTempDirectory(SandboxLocation.baseDirectory());
+        return createTempDirectory(fileSystem.getRootDirectories().iterator().next().resolve("tmp"));
+    }
+
+    // Named after this JVM, so that whatever it leaves behind if it dies can be told apart by a SandboxReaper, which
+    //  is started on the first sandbox created under each base directory
+    static Path createTempDirectory(Path baseDirectory) {
+        Path ret;
         try {
-            ret = Files.createTempDirectory("tmp" + testCounter.addAndGet(1)).toFile();
+            SandboxReaper.start(baseDirectory);
+            var prefix = SandboxReaper.OWNER + testCounter.addAndGet(1) + "-";
+            ret = Files.createTempDirectory(Files.createDirectories(baseDirectory), prefix);
         } catch(IOException ioe) {
             ret = null;
             fail(ioe);
@@ -77,10 +221,10 @@ public class Sandbox {
 
     /**
      * Will run the specified lambda in a temporal directory.  This temporal directory is created and disposed of
-     * in a thread-safe manner.  This version of the method however becomes NOT thread-safe if instructed to capture
-     * outputs of the lambda.
+     * in a thread-safe manner.  Output capture is thread-safe too, as it only sees what the current thread (and the
+     * threads it starts) writes.
      * @param action Lambda running on the temporal directory
-     * @param captureOutput If true, the method will try to capture stdOut and error output in a non-thread-safe manner
+     * @param captureOutput If true, the method will capture stdOut and error output of the current thread
      * @return Execution context consisting of
      *  - whatever the action returned
      *  - if it was capturing, the standard output
@@ -92,66 +236,550 @@ public class Sandbox {
 
     /**
      * Will run the specified lambda in a temporal directory.  This temporal directory is created and disposed of
-     * in a thread-safe manner.  This version of the method however becomes NOT thread-safe if instructed to capture
-     * outputs of the lambda.
+     * in a thread-safe manner.  Output capture is thread-safe too, as it only sees what the current thread (and the
+     * threads it starts) writes.
      * @param action Lambda running on the temporal directory
-     * @param captureOutput If true, the method will try to capture stdOut and error output in a non-thread-safe manner
+     * @param captureOutput If true, the method will capture stdOut and error output of the current thread
      * @return Execution context consisting of
      *  - whatever the action returned
      *  - if it was capturing, the standard output
      *  - if it was capturing, the error output
      */
     public ExecutionContext runTest(RunnableInTempDirectory action, Boolean captureOutput) {
-        ExecutionContext ret = null;
+        return runTestInRoot((Path dir) -> action.run(getSandbox()), captureOutput);
+    }
+
+    /**
+     * Same as {@link #runTest(RunnableInTempDirectory)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - no standard output
+     *  - no error output
+     */
+    public ExecutionContext runTestInRoot(RunnableInRoot action) {
+        return runTestInRoot(action, false);
+    }
+
+    /**
+     * Same as {@link #runTest(RunnableInTempDirectoryVoid)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox, in this case one that does not return anything
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - no standard output
+     *  - no error output
+     */
+    public ExecutionContext runTestInRoot(RunnableInRootVoid action) {
+        return runTestInRoot(action, false);
+    }
+
+    /**
+     * Same as {@link #runTest(RunnableInTempDirectoryVoid, Boolean)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox, in this case one that does not return anything
+     * @param captureOutput If true, the method will capture stdOut and error output of the current thread
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - if it was capturing, the standard output
+     *  - if it was capturing, the error output
+     */
+    public ExecutionContext runTestInRoot(RunnableInRootVoid action, Boolean captureOutput) {
+        return runTestInRoot((Path dir) -> { action.run(root); return null; }, captureOutput);
+    }
+
+    /**
+     * Same as {@link #runTest(RunnableInTempDirectory, Boolean)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox
+     * @param captureOutput If true, the method will capture stdOut and error output of the current thread
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - if it was capturing, the standard output
+     *  - if it was capturing, the error output
+     *  - the metrics of the sandbox, after its cleanup
+     *  - if it was tracking them, the changes to the files of the sandbox, see {@link #trackChanges()}
+     */
+    public ExecutionContext runTestInRoot(RunnableInRoot action, Boolean captureOutput) {
+        Object result = null;
+        String out = null;
+        String err = null;
+        ChangeLog changes = null;
+        SandboxJournal journal = null;
         try {
-            if (captureOutput) ret = CaptureOutput.captureOutput(() -> action.run(sandbox));
-            else ret = new ExecutionContext(action.run(sandbox), null, null);
+            if (trackChanges) journal = journal();
+            if (captureOutput) {
+                final var myOut = new ByteArrayOutputStream();
+                final var myErr = new ByteArrayOutputStream();
+                result = CaptureOutput.capture(() -> action.run(root), myOut, myErr);
+                metrics.recordCapture(myOut.size() + myErr.size());
+                out = myOut.toString();
+                err = myErr.toString();
+            }
+            else result = action.run(root);
         } catch (Exception e) { fail(e); }
         finally {
-            cleanup();
+            try {
+                if (journal != null) {
+                    try {
+                        changes = journal.changes();
+                    } finally {
+                        journal.close();
+                    }
+                }
+            } finally {
+                cleanup();
+            }
         }
+        return new ExecutionContext(result, out, err, metrics, changes);
+    }
+
+    /**
+     * Makes runTest record the changes to the files of the sandbox while the action runs, and return them in the
+     * execution context.  See {@link SandboxJournal}
+     * @return This sandbox
+     */
+    public Sandbox trackChanges() {
+        trackChanges = true;
+        return this;
+    }
+
+    /**
+     * Starts recording the changes to the files of the sandbox
+     * @return Journal of the changes, to be closed once done with it
+     */
+    public SandboxJournal journal() {
+        SandboxJournal ret = null;
+        try {
+            ret = SandboxJournal.start(this, companion("journal" + journalCounter.incrementAndGet()));
+        } catch (IOException ioe) { fail(ioe); }
         return ret;
     }
 
+    /**
+     * Runs the specified lambda in the sandbox while capturing its output in a bounded amount of memory: beyond the
+     * threshold, output is spilled to disk, next to the sandbox.  Unlike runTest, the sandbox is not cleaned up
+     * afterwards, and the spilled output can be read until it is
+     * @param action Lambda running on the temporal directory
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext captureOutput(RunnableInTempDirectory action, int memoryThreshold) {
+        return captureOutputInRoot((Path dir) -> action.run(getSandbox()), memoryThreshold);
+    }
+
+    /**
+     * Same as {@link #captureOutput(RunnableInTempDirectory, int)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext captureOutputInRoot(RunnableInRoot action, int memoryThreshold) {
+        return captureOutputInRoot(action, memoryThreshold, false);
+    }
+
+    /**
+     * Same as {@link #captureOutput(RunnableInTempDirectory, int)}, indexing the lines of both outputs as they are
+     * written if asked to, so that they can be checked without scanning them every time, see {@link OutputIndex}
+     * @param action Lambda running on the temporal directory
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param indexed If true, the outputs are indexed, which takes about as much heap as the outputs themselves,
+     *                even beyond the memory threshold
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext captureOutput(
+        RunnableInTempDirectory action,
+        int memoryThreshold,
+        boolean indexed
+    ) {
+        return captureOutputInRoot((Path dir) -> action.run(getSandbox()), memoryThreshold, indexed);
+    }
+
+    /**
+     * Same as {@link #captureOutput(RunnableInTempDirectory, int, boolean)}, for sandboxes in any filesystem
+     * @param action Lambda running on the root of the sandbox
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param indexed If true, the outputs are indexed, which takes about as much heap as the outputs themselves,
+     *                even beyond the memory threshold
+     * @return Execution context consisting of
+     *  - whatever the action returned
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext captureOutputInRoot(RunnableInRoot action, int memoryThreshold, boolean indexed) {
+        var ret = CaptureOutput.captureOutputStreaming(
+            () -> action.run(root),
+            memoryThreshold,
+            companion("capture"),
+            indexed
+        );
+        metrics.recordCapture(ret.out().size() + ret.err().size());
+        return ret;
+    }
+
+    /**
+     * Runs an external process with the sandbox as its working directory, waiting for it as long as needed.  See
+     * {@link #exec(List, Duration)}
+     * @param command Program and its arguments
+     * @return Execution context consisting of
+     *  - the exit code of the process, as an Integer
+     *  - the standard output
+     *  - the error output
+     */
+    public ExecutionContext exec(List<String> command) {
+        return exec(command, null);
+    }
+
+    /**
+     * Runs an external process with the sandbox as its working directory and no input.  Both of its outputs are
+     * drained concurrently while it runs, so it never blocks on a full pipe, and kept in memory only up to a
+     * threshold, as in {@link #execStreaming(List, Duration, int)}.  Unlike runTest, the sandbox is not cleaned up
+     * afterwards, so that whatever the process left in it can be checked.  Fails if the process cannot be started or
+     * does not finish in time, in which case it is killed along with whatever it started
+     * @param command Program and its arguments
+     * @param timeout Maximum time to wait for the process to finish.  If null, no limit
+     * @return Execution context consisting of
+     *  - the exit code of the process, as an Integer
+     *  - the standard output
+     *  - the error output
+     */
+    public ExecutionContext exec(List<String> command, Duration timeout) {
+        try (var ret = execStreaming(command, timeout, EXEC_MEMORY_THRESHOLD)) {
+            return new ExecutionContext(ret.result(), ret.out().toString(), ret.err().toString(), metrics);
+        } catch (IOException ioe) {
+            fail(ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #exec(List, Duration)}, but the outputs are kept as they were captured: in memory up to the
+     * threshold and spilled to disk beyond it, next to the sandbox, until the context is closed
+     * @param command Program and its arguments
+     * @param timeout Maximum time to wait for the process to finish.  If null, no limit
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @return Execution context consisting of
+     *  - the exit code of the process, as an Integer
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext execStreaming(List<String> command, Duration timeout, int memoryThreshold) {
+        return execStreaming(command, timeout, memoryThreshold, false);
+    }
+
+    /**
+     * Same as {@link #execStreaming(List, Duration, int)}, indexing the lines of both outputs as they are written
+     * if asked to, see {@link OutputIndex}
+     * @param command Program and its arguments
+     * @param timeout Maximum time to wait for the process to finish.  If null, no limit
+     * @param memoryThreshold Maximum number of bytes of each output kept in memory
+     * @param indexed If true, the outputs are indexed, which takes about as much heap as the outputs themselves,
+     *                even beyond the memory threshold
+     * @return Execution context consisting of
+     *  - the exit code of the process, as an Integer
+     *  - the standard output
+     *  - the error output
+     */
+    public StreamingExecutionContext execStreaming(
+        List<String> command,
+        Duration timeout,
+        int memoryThreshold,
+        boolean indexed
+    ) {
+        if (command == null || command.isEmpty()) throw new IllegalArgumentException("Command cannot be empty");
+        var ret = SandboxProcess.run(getSandbox(), command, timeout, memoryThreshold, companion("capture"), indexed);
+        metrics.recordCapture(ret.out().size() + ret.err().size());
+        return ret;
+    }
+
+    /**
+     * Runs the specified lambda concurrently in as many virtual threads as requested, each one in a temporal
+     * directory of its own, all of them starting at the same time
+     * @param threads Number of threads
+     * @param action Lambda running on each temporal directory
+     * @return Execution context of every thread along with timing statistics; fails if any thread failed
+     */
+    public static ConcurrentExecutionContext runConcurrently(int threads, RunnableInTempDirectory action) {
+        return runConcurrently(threads, action, false);
+    }
+
+    public static ConcurrentExecutionContext runConcurrently(int threads, RunnableInTempDirectoryVoid action) {
+        return runConcurrently(threads, action, false);
+    }
+
+    public static ConcurrentExecutionContext runConcurrently(
+        int threads,
+        RunnableInTempDirectoryVoid action,
+        Boolean captureOutput
+    ) {
+        return runConcurrently(threads, (File dir) -> { action.run(dir); return null; }, captureOutput);
+    }
+
+    /**
+     * Runs the specified lambda concurrently in as many virtual threads as requested, each one in a temporal
+     * directory of its own, all of them starting at the same time.  Output is captured per thread, so that every
+     * execution context only has the output of its own thread
+     * @param threads Number of threads
+     * @param action Lambda running on each temporal directory
+     * @param captureOutput If true, the method will capture stdOut and error output of every thread
+     * @return Execution context of every thread along with timing statistics; fails if any thread failed
+     */
+    public static ConcurrentExecutionContext runConcurrently(
+        int threads,
+        RunnableInTempDirectory action,
+        Boolean captureOutput
+    ) {
+        return runConcurrently(threads, Sandbox::sandbox, (Sandbox sb) -> action.run(sb.getSandbox()), captureOutput);
+    }
+
+    /**
+     * Same as {@link #runConcurrently(int, RunnableInTempDirectory, Boolean)}, for sandboxes of any kind
+     * @param threads Number of threads
+     * @param sandboxes Creates the sandbox of each thread, e.g. Sandbox::inMemory
+     * @param action Lambda running on each sandbox
+     * @param captureOutput If true, the method will capture stdOut and error output of every thread
+     * @return Execution context of every thread along with timing statistics; fails if any thread failed
+     */
+    public static ConcurrentExecutionContext runConcurrently(
+        int threads,
+        Supplier<Sandbox> sandboxes,
+        RunnableInSandbox action,
+        Boolean captureOutput
+    ) {
+        if (threads <= 0) throw new IllegalArgumentException("At least one thread is needed");
+        var contexts = new ExecutionContext[threads];
+        var durations = new Duration[threads];
+        var ready = new CountDownLatch(threads);
+        var go = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        long start;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < threads; i++) {
+                final var index = i;
+                futures.add(executor.submit(() -> {
+                    Sandbox sb;
+                    try {
+                        sb = sandboxes.get();
+                    } finally {
+                        ready.countDown();
+                    }
+                    go.await();
+                    var threadStart = System.nanoTime();
+                    try {
+                        contexts[index] = sb.runTestInRoot((Path root) -> action.run(sb), captureOutput);
+                    } finally {
+                        durations[index] = Duration.ofNanos(System.nanoTime() - threadStart);
+                    }
+                    return null;
+                }));
+            }
+            // Sandboxes are created before starting the clock, so that they do not count
+            awaitUninterruptibly(ready);
+            start = System.nanoTime();
+            go.countDown();
+        }
+        var wallTime = Duration.ofNanos(System.nanoTime() - start);
+        AssertionFailedError failure = null;
+        for (var future: futures) {
+            try {
+                future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                var cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (failure == null) failure = new AssertionFailedError("Some thread failed", cause);
+                else failure.addSuppressed(cause);
+            }
+        }
+        if (failure != null) throw failure;
+        return new ConcurrentExecutionContext(List.of(contexts), List.of(durations), wallTime);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        var interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Directory next to the sandbox, with the same name plus the given suffix, for whatever belongs to the sandbox
+    //  but must not be seen inside it.  Removed on cleanup
+    private Path companion(String suffix) {
+        companions.add(suffix);
+        return root.resolveSibling(root.getFileName() + "." + suffix);
+    }
+
+    private void removeCompanions() throws IOException {
+        for (var suffix: companions) {
+            var directory = companion(suffix);
+            if (Files.isDirectory(directory)) DirectoryRemover.remove(directory, false);
+        }
+    }
+
+    /**
+     * Records the current state of the sandbox, so that it can be brought back to it as many times as needed by
+     * restoring only what changed since.  The contents of the files are copied next to the sandbox, out of its
+     * tree, and removed when the snapshot is closed or the sandbox is cleaned up
+     * @return Snapshot of the sandbox
+     */
+    public SandboxSnapshot snapshot() {
+        SandboxSnapshot ret = null;
+        try {
+            ret = new SandboxSnapshot(this, companion("snapshot" + snapshotCounter.incrementAndGet()));
+        } catch (IOException ioe) { fail(ioe); }
+        return ret;
+    }
+
+    /**
+     * Keeps the sandbox from being cleaned up until {@link #release()}, for sandboxes shared by several tests that
+     * may clean it up themselves, e.g. through runTest
+     * @return The same sandbox
+     */
+    public Sandbox retain() {
+        retained = true;
+        return this;
+    }
+
+    /**
+     * Lets the sandbox be cleaned up again, once it is no longer shared
+     */
+    public void release() {
+        retained = false;
+    }
+
+    /**
+     * Removes the sandbox, or gives its directory back to its pool.  Only the first call does anything, so that a
+     * sandbox cleaned up by runTest can be cleaned up again by whoever created it.  Nothing is done while the
+     * sandbox is retained
+     */
     public void cleanup() {
+        if (retained || !cleanedUp.compareAndSet(false, true)) return;
+        var start = System.nanoTime();
+        CompletableFuture<Void> recycled = null;
         try {
+            if (ownFileSystem != null) {
+                // The whole filesystem is discarded, the tree is only deleted to measure it and free its memory now
+                metrics.recordTree(DirectoryRemover.remove(root, false));
+                closeOwnFileSystem();
+                return;
+            }
+            removeCompanions();
+            if (pool != null) {
+                // The pool takes care of emptying the directory and reusing it
+                recycled = pool.recycle(sandbox, metrics);
+                return;
+            }
             // Delete recursively
-            removeDirectory(sandbox);
+            assert !Files.isSymbolicLink(root);
+            metrics.recordTree(DirectoryRemover.remove(root, false));
         } catch (IOException ioe) {
             // Fail too if cleanup was not possible for whatever reason
             fail(ioe);
+        } finally {
+            metrics.recordCleanup(start, recycled);
         }
     }
 
+    /**
+     * Same as cleanup, but off the caller's critical path: the sandbox is renamed away, so that its path is free as
+     * soon as the method returns, and is deleted in a background thread
+     * @return Future that completes once the sandbox has been completely deleted, or emptied by its pool
+     */
+    public CompletableFuture<Void> cleanupInBackground() {
+        if (retained || !cleanedUp.compareAndSet(false, true)) return CompletableFuture.completedFuture(null);
+        var start = System.nanoTime();
+        CompletableFuture<Void> ret = null;
+        try {
+            ret = startCleanup();
+            return ret;
+        } finally {
+            metrics.recordCleanup(start, ret);
+        }
+    }
+
+    // Everything cleanupInBackground does but recording the metrics
+    private CompletableFuture<Void> startCleanup() {
+        if (ownFileSystem != null) {
+            closeOwnFileSystem();
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            removeCompanions();
+        } catch (IOException ioe) {
+            return CompletableFuture.failedFuture(ioe);
+        }
+        if (pool != null) return pool.recycle(sandbox, metrics);
+        assert !Files.isSymbolicLink(root);
+        return DirectoryRemover.removeInBackground(root).thenAccept(metrics::recordTree);
+    }
+
+    private void closeOwnFileSystem() {
+        try {
+            ownFileSystem.close();
+        } catch (IOException ioe) {
+            fail(ioe);
+        }
+    }
+
+    /**
+     * Turns the current contents of the sandbox into an immutable layer that other sandboxes can be populated with,
+     * see {@link SandboxLayer}.  The sandbox must not be modified from then on, and is cleaned up by closing the layer
+     * @return Layer with the contents of the sandbox
+     */
+    public SandboxLayer freeze() {
+        SandboxLayer ret = null;
+        try {
+            ret = new SandboxLayer(this);
+        } catch (IOException ioe) { fail(ioe); }
+        return ret;
+    }
+
     // Converts a classpath string into a string that will be used to create a children file inside the sandbox
     private String extractPath(String classpath) {
         if (classpath.startsWith("/")) return classpath.substring(1);
         else return classpath;
     }
 
-    // Will delete the sandbox and whatever is sitting there
-    private void removeDirectory(File directory) throws IOException {
+    // Path of a file inside the sandbox
+    Path resolve(String path) {
+        return root.resolve(extractPath(path));
+    }
+
+    // Will delete whatever is sitting in the directory, and the directory itself unless told to keep it
+    static DirectoryRemover.Removed removeDirectory(File directory, boolean keepRoot) throws IOException {
         assert directory != null;
         assert !Files.isSymbolicLink(directory.toPath());
         assert directory.isDirectory();
 
-        Files.walk(directory.toPath())
-            .sorted(Comparator.reverseOrder())
-            .map(Path::toFile)
-            .forEach(File::delete);
+        return DirectoryRemover.remove(directory.toPath(), keepRoot);
     }
 
     public File copyResource(String resourcePath) {
         return copyResource(resourcePath, null);
     }
 
+    public Path copyResourceAsPath(String resourcePath) {
+        return copyResourceAsPath(resourcePath, null);
+    }
+
     // Makes it sure a string used to find a resource in the classpath starts with '/'
     private String validateClasspathPath(String path) {
         return path.startsWith("/") ? path : "/" + path;
     }
 
     /**
-     * Copies bit to bit some resource from the classpath into the sandboxed directory
+     * Copies bit to bit some resource from the classpath into the sandboxed directory.  The resource is read from the
+     * classpath only the first time, and from then on copied from the {@link ResourceCache}
      * @param resourcePath Valid classloader path to an existing resource in the classpath (e.g., something in the
      *                     src/test/resources directory)
      * @param newPath Full path inside the sandbox where the resource will be copied on.  If null, the resource will be
@@ -159,14 +787,151 @@ public class Sandbox {
      * @return File object that references the resource created in the filesystem.
      */
     public File copyResource(String resourcePath, String newPath) {
-        File toFile = new File(sandbox, newPath != null ? extractPath(newPath) : extractPath(resourcePath));
-        assertFalse(toFile.exists());
-        if (!toFile.getParentFile().equals(sandbox)) toFile.getParentFile().mkdirs();
-        try (var is = Sandbox.class.getResourceAsStream(validateClasspathPath(resourcePath))) {
-            assertNotNull(is);
-            Files.copy(is, toFile.toPath());
+        getSandbox();
+        return copyResourceAsPath(resourcePath, newPath).toFile();
+    }
+
+    /**
+     * Same as {@link #copyResource(String, String)}, for sandboxes in any filesystem
+     * @param resourcePath Valid classloader path to an existing resource in the classpath
+     * @param newPath Full path inside the sandbox where the resource will be copied on.  If null, the resource will be
+     *                copied in the same path it had in the classpath
+     * @return Path of the resource created in the sandbox
+     */
+    public Path copyResourceAsPath(String resourcePath, String newPath) {
+        return bringResource(resourcePath, newPath, false);
+    }
+
+    public File linkResource(String resourcePath) {
+        return linkResource(resourcePath, null);
+    }
+
+    /**
+     * Brings some resource from the classpath into the sandboxed directory as a read-only hard link to its copy in
+     * the {@link ResourceCache}, which is the cheapest way of bringing in large fixtures that the test does not
+     * modify.  If it cannot be linked, it is copied and made read-only
+     * @param resourcePath Valid classloader path to an existing resource in the classpath
+     * @param newPath Full path inside the sandbox where the resource will be linked.  If null, the resource will be
+     *                linked in the same path it had in the classpath
+     * @return File object that references the resource created in the filesystem.
+     */
+    public File linkResource(String resourcePath, String newPath) {
+        getSandbox();
+        return linkResourceAsPath(resourcePath, newPath).toFile();
+    }
+
+    public Path linkResourceAsPath(String resourcePath) {
+        return linkResourceAsPath(resourcePath, null);
+    }
+
+    /**
+     * Same as {@link #linkResource(String, String)}, for sandboxes in any filesystem
+     * @param resourcePath Valid classloader path to an existing resource in the classpath
+     * @param newPath Full path inside the sandbox where the resource will be linked.  If null, the resource will be
+     *                linked in the same path it had in the classpath
+     * @return Path of the resource created in the sandbox
+     */
+    public Path linkResourceAsPath(String resourcePath, String newPath) {
+        return bringResource(resourcePath, newPath, true);
+    }
+
+    private Path bringResource(String resourcePath, String newPath, boolean link) {
+        Path to = root.resolve(newPath != null ? extractPath(newPath) : extractPath(resourcePath));
+        assertFalse(Files.exists(to));
+        try {
+            if (!to.getParent().equals(root)) Files.createDirectories(to.getParent());
+            var cache = ResourceCache.shared();
+            var path = validateClasspathPath(resourcePath);
+            assertTrue(link ? cache.linkTo(path, to) : cache.copyTo(path, to), "Resource not found: " + path);
+            metrics.recordWrite(1, Files.size(to));
         } catch (IOException ioe) { fail(ioe); }
-        return toFile;
+        return to;
+    }
+
+    public File copyResourceTree(String classpathDir) {
+        return copyResourceTree(classpathDir, null);
+    }
+
+    /**
+     * Copies a whole directory of the classpath, with all its files and subdirectories, into the sandboxed directory.
+     * The directory may be spread over several classpath entries, either exploded directories or jar files.  Every
+     * directory is created only once and files are copied in parallel
+     * @param classpathDir Valid classloader path to an existing directory in the classpath (e.g., something in the
+     *                     src/test/resources directory)
+     * @param target Path of the directory inside the sandbox where the contents of the resource directory will be
+     *               copied on.  If null, they will be copied in the same path the directory had in the classpath
+     * @return File object that references the target directory
+     */
+    public File copyResourceTree(String classpathDir, String target) {
+        getSandbox();
+        return copyResourceTreeAsPath(classpathDir, target).toFile();
+    }
+
+    public Path copyResourceTreeAsPath(String classpathDir) {
+        return copyResourceTreeAsPath(classpathDir, null);
+    }
+
+    /**
+     * Same as {@link #copyResourceTree(String, String)}, for sandboxes in any filesystem
+     * @param classpathDir Valid classloader path to an existing directory in the classpath
+     * @param target Path of the directory inside the sandbox where the contents of the resource directory will be
+     *               copied on.  If null, they will be copied in the same path the directory had in the classpath
+     * @return Path of the target directory
+     */
+    public Path copyResourceTreeAsPath(String classpathDir, String target) {
+        Path to = root.resolve(target != null ? extractPath(target) : extractPath(classpathDir));
+        try (var tree = ResourceTree.open(Sandbox.class.getClassLoader(), classpathDir)) {
+            assertNotNull(tree, "Resource directory not found: " + classpathDir);
+            metrics.recordWrite(tree.files().size(), tree.copyTo(to));
+        } catch (IOException ioe) { fail(ioe); }
+        return to;
+    }
+
+    public TreeDiff diff(String classpathExpectedDir) {
+        return diff(classpathExpectedDir, null);
+    }
+
+    /**
+     * Compares the files of a directory of the sandbox with the ones of an expected directory of the classpath.  Files
+     * are compared in parallel, and their contents are streamed (or memory-mapped, if large) in chunks instead of
+     * loaded into the heap
+     * @param classpathExpectedDir Valid classloader path to an existing directory in the classpath, with the expected
+     *                             tree
+     * @param sandboxDir Path of the directory inside the sandbox to compare.  If null, the whole sandbox
+     * @return Files missing in the sandbox, extra files in it, and files whose contents differ
+     */
+    public TreeDiff diff(String classpathExpectedDir, String sandboxDir) {
+        Path actual = sandboxDir != null ? root.resolve(extractPath(sandboxDir)) : root;
+        TreeDiff ret = null;
+        try (var tree = ResourceTree.open(Sandbox.class.getClassLoader(), classpathExpectedDir)) {
+            assertNotNull(tree, "Resource directory not found: " + classpathExpectedDir);
+            ret = TreeDiff.compare(tree, actual);
+        } catch (IOException ioe) { fail(ioe); }
+        return ret;
+    }
+
+    public void assertMatches(String classpathExpectedDir) {
+        assertMatches(classpathExpectedDir, null);
+    }
+
+    /**
+     * Fails unless a directory of the sandbox has exactly the same files, with the same contents, as an expected
+     * directory of the classpath.  See {@link #diff(String, String)}
+     * @param classpathExpectedDir Valid classloader path to an existing directory in the classpath, with the expected
+     *                             tree
+     * @param sandboxDir Path of the directory inside the sandbox to compare.  If null, the whole sandbox
+     */
+    public void assertMatches(String classpathExpectedDir, String sandboxDir) {
+        var diff = diff(classpathExpectedDir, sandboxDir);
+        assertTrue(diff.isEmpty(), () -> "Sandbox does not match " + classpathExpectedDir + "\n" + diff);
+    }
+
+    /**
+     * Starts a batch of files to be created all at once, see {@link SandboxBatch}
+     * @return Empty batch
+     */
+    public SandboxBatch batch() {
+        return new SandboxBatch(this);
     }
 
     public File createResource(String path, String content, Charset encoding) {
@@ -175,12 +940,114 @@ public class Sandbox {
     }
 
     public File createResource(String path, byte[] content) {
+        getSandbox();
+        return createResourceAsPath(path, content).toFile();
+    }
+
+    public Path createResourceAsPath(String path, String content, Charset encoding) {
+        if (path == null || content == null || encoding == null) throw new NullPointerException();
+        return createResourceAsPath(path, content.getBytes(encoding));
+    }
+
+    public Path createResourceAsPath(String path, byte[] content) {
         if (path == null || content == null) throw new NullPointerException();
-        File toFile = new File(sandbox, extractPath(path));
-        try (var bais = new ByteArrayInputStream(content)) {
-            toFile.getParentFile().mkdirs();
-            Files.copy(bais, toFile.toPath());
+        Path to = root.resolve(extractPath(path));
+        try {
+            Files.createDirectories(to.getParent());
+            SandboxLocation.checkSpace(to, content.length);
+            Files.write(to, content, StandardOpenOption.CREATE_NEW);
+            metrics.recordWrite(1, content.length);
         } catch (IOException ioe) { fail(ioe); }
-        return toFile;
+        return to;
+    }
+
+    public File createResource(String path, InputStream content) {
+        getSandbox();
+        return createResourceAsPath(path, content).toFile();
+    }
+
+    /**
+     * Creates a file in the sandbox with whatever the stream has, written through a direct buffer so that the
+     * content never needs to fit in the heap
+     * @param path Path of the new file inside the sandbox
+     * @param content Stream read until its end.  It is not closed
+     * @return Path of the file created in the sandbox
+     */
+    public Path createResourceAsPath(String path, InputStream content) {
+        if (path == null || content == null) throw new NullPointerException();
+        var in = Channels.newChannel(content);
+        return writeResource(path, -1, (channel, buffer) -> {
+            var ret = 0L;
+            while (in.read(buffer.clear()) >= 0) ret += SyntheticContent.writeFully(channel, buffer.flip());
+            return ret;
+        });
+    }
+
+    public File createResource(String path, Supplier<ByteBuffer> chunks) {
+        getSandbox();
+        return createResourceAsPath(path, chunks).toFile();
+    }
+
+    /**
+     * Creates a file in the sandbox out of the chunks given by the supplier, written one after the other as they are
+     * supplied, so that they can reuse the same (preferably direct) buffer
+     * @param path Path of the new file inside the sandbox
+     * @param chunks Supplies the next chunk of the file, from its position to its limit, or null once there are no
+     *               more chunks
+     * @return Path of the file created in the sandbox
+     */
+    public Path createResourceAsPath(String path, Supplier<ByteBuffer> chunks) {
+        if (path == null || chunks == null) throw new NullPointerException();
+        return writeResource(path, -1, (channel, buffer) -> {
+            var ret = 0L;
+            for (var chunk = chunks.get(); chunk != null; chunk = chunks.get())
+                ret += SyntheticContent.writeFully(channel, chunk);
+            return ret;
+        });
+    }
+
+    public File createResource(String path, SyntheticContent content) {
+        getSandbox();
+        return createResourceAsPath(path, content).toFile();
+    }
+
+    /**
+     * Creates a file in the sandbox with synthetic content, generated while it is written through a direct buffer,
+     * so that files of any size can be created with a small heap
+     * @param path Path of the new file inside the sandbox
+     * @param content Sparse, random or repeating content
+     * @return Path of the file created in the sandbox
+     */
+    public Path createResourceAsPath(String path, SyntheticContent content) {
+        if (path == null || content == null) throw new NullPointerException();
+        return writeResource(path, content.spaceNeeded(), (channel, buffer) -> {
+            content.writeTo(channel, buffer);
+            return content.size();
+        });
+    }
+
+    @FunctionalInterface
+    interface ChannelWriter {
+        // Returns the number of bytes written
+        long write(FileChannel channel, ByteBuffer buffer) throws IOException;
+    }
+
+    // Creates a new file and writes it through a channel, with a direct buffer taken from the pool.  Size is the
+    //  space the file will take, if known, or -1
+    private Path writeResource(String path, long size, ChannelWriter writer) {
+        Path to = resolve(path);
+        var buffer = DirectBuffers.take();
+        try {
+            Files.createDirectories(to.getParent());
+            SandboxLocation.checkSpace(to, size);
+            try (var channel = FileChannel.open(to, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                metrics.recordWrite(1, writer.write(channel, buffer));
+            }
+        } catch (IOException ioe) {
+            fail(ioe);
+        } finally {
+            DirectBuffers.give(buffer);
+        }
+        return to;
     }
 }
@@ -0,0 +1,161 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Files to be created in a sandbox all at once, which is much faster than creating them one by one when there are
+ * many: every directory is created once, however many files go in it, and the files are written in parallel, each
+ * thread reusing the same direct buffer for all the files it writes.
+ * <pre>
+ *     var files = sb.batch()
+ *         .file("data/a.txt", "a", UTF_8)
+ *         .file("data/b.bin", bytes)
+ *         .commit();
+ * </pre>
+ */
+public class SandboxBatch {
+
+    // Files are split into this many slices at most, written in parallel in the common pool
+    private final static int SLICES = ForkJoinPool.getCommonPoolParallelism() + 1;
+
+    private final Sandbox sandbox;
+    private final List<Path> paths = new ArrayList<>();
+    private final List<Sandbox.ChannelWriter> writers = new ArrayList<>();
+    // Space all the files will take, at most
+    private long spaceNeeded;
+    private boolean committed;
+
+    SandboxBatch(Sandbox sandbox) {
+        this.sandbox = sandbox;
+    }
+
+    public SandboxBatch file(String path, String content, Charset encoding) {
+        if (path == null || content == null || encoding == null) throw new NullPointerException();
+        return file(path, content.getBytes(encoding));
+    }
+
+    /**
+     * @param path Path of the new file inside the sandbox
+     * @param content Content of the file.  It is not copied, so it must not be modified until the batch is committed
+     * @return This batch
+     */
+    public SandboxBatch file(String path, byte[] content) {
+        if (path == null || content == null) throw new NullPointerException();
+        return add(path, content.length, (channel, buffer) -> {
+            for (var offset = 0; offset < content.length; offset += buffer.capacity()) {
+                buffer.clear().put(content, offset, Math.min(buffer.capacity(), content.length - offset));
+                SyntheticContent.writeFully(channel, buffer.flip());
+            }
+            return content.length;
+        });
+    }
+
+    /**
+     * @param path Path of the new file inside the sandbox
+     * @param content Sparse, random or repeating content, see {@link SyntheticContent}
+     * @return This batch
+     */
+    public SandboxBatch file(String path, SyntheticContent content) {
+        if (path == null || content == null) throw new NullPointerException();
+        return add(path, content.spaceNeeded(), (channel, buffer) -> {
+            content.writeTo(channel, buffer);
+            return content.size();
+        });
+    }
+
+    private SandboxBatch add(String path, long space, Sandbox.ChannelWriter writer) {
+        if (committed) throw new IllegalStateException("Batch already committed");
+        paths.add(sandbox.resolve(path));
+        spaceNeeded += space;
+        writers.add(writer);
+        return this;
+    }
+
+    /**
+     * Creates every file of the batch.  None of them may exist already
+     * @return Files created, in the same order they were added to the batch
+     * @throws UnsupportedOperationException If the sandbox does not live in the default filesystem, in which case
+     *      {@link #commitAsPath()} must be used instead
+     */
+    public List<File> commit() {
+        sandbox.getSandbox();
+        return commitAsPath().stream().map(Path::toFile).toList();
+    }
+
+    /**
+     * Creates every file of the batch.  None of them may exist already
+     * @return Paths of the files created, in the same order they were added to the batch
+     */
+    public List<Path> commitAsPath() {
+        if (committed) throw new IllegalStateException("Batch already committed");
+        committed = true;
+        try {
+            createDirectories();
+            if (!paths.isEmpty()) SandboxLocation.checkSpace(paths.get(0), spaceNeeded);
+            var bytes = new AtomicLong();
+            var slices = Math.min(SLICES, paths.size());
+            IntStream.range(0, slices).parallel().forEach(slice -> bytes.addAndGet(write(slice, slices)));
+            sandbox.metrics().recordWrite(paths.size(), bytes.get());
+        } catch (IOException ioe) {
+            fail(ioe);
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+        }
+        return List.copyOf(paths);
+    }
+
+    // Every directory between the root of the sandbox and the files, created once and parents first
+    private void createDirectories() throws IOException {
+        var root = sandbox.getRoot();
+        var directories = new HashSet<Path>();
+        for (var path: paths) {
+            // Stops as soon as a directory was already seen, its parents were too
+            for (var dir = path.getParent(); !dir.equals(root) && directories.add(dir); dir = dir.getParent());
+        }
+        var sorted = new ArrayList<>(directories);
+        sorted.sort(Comparator.comparingInt(Path::getNameCount));
+        for (var dir: sorted) {
+            try {
+                Files.createDirectory(dir);
+            } catch (FileAlreadyExistsException e) {
+                if (!Files.isDirectory(dir)) throw e;
+            }
+        }
+    }
+
+    // Writes every file whose index modulo slices is the given slice, all through the same buffer
+    private long write(int slice, int slices) {
+        var buffer = DirectBuffers.take();
+        try {
+            var ret = 0L;
+            for (var i = slice; i < paths.size(); i += slices) {
+                var path = paths.get(i);
+                try (var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    ret += writers.get(i).write(channel, buffer);
+                }
+            }
+            return ret;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        } finally {
+            DirectBuffers.give(buffer);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Records the changes to the files of a sandbox from the moment it is attached, see {@link Sandbox#journal()}.
+ * Where the filesystem notifies changes (e.g. inotify on Linux), they are recorded as they happen, and querying them
+ * takes time proportional to the number of changes, whatever the size of the tree.  Elsewhere, the journal falls
+ * back to comparing the sizes and modification times of every file with those it found when attached.  Either way,
+ * only net changes are reported (see {@link ChangeLog}), so that the same test sees the same changes everywhere.
+ * <pre>
+ *     try (var journal = sb.journal()) {
+ *         // Code under test
+ *         assertEquals(Set.of("out/result.txt"), journal.changes().created());
+ *     }
+ * </pre>
+ */
+public abstract class SandboxJournal implements AutoCloseable {
+
+    // Watch services that poll the tree instead of being notified by the filesystem: the one of the JDK for the
+    //  platforms without native notifications (e.g. macOS), and the one of Jimfs
+    private final static Set<String> POLLING_WATCH_SERVICES = Set.of(
+        "sun.nio.fs.PollingWatchService",
+        "com.google.common.jimfs.PollingWatchService"
+    );
+
+    final Path root;
+
+    private SandboxJournal(Path root) {
+        this.root = root;
+    }
+
+    static SandboxJournal start(Sandbox sandbox, Path syncDirectory) throws IOException {
+        var root = sandbox.getRoot();
+        WatchService watchService;
+        try {
+            watchService = root.getFileSystem().newWatchService();
+        } catch (UnsupportedOperationException e) {
+            return new Polling(root);
+        }
+        // Watch services that poll by themselves take seconds to notice changes, comparing the tree is faster
+        if (POLLING_WATCH_SERVICES.contains(watchService.getClass().getName())) {
+            watchService.close();
+            return new Polling(root);
+        }
+        return new Watching(root, watchService, syncDirectory);
+    }
+
+    /**
+     * @return Changes so far, including every change made before the call
+     */
+    public abstract ChangeLog changes();
+
+    /**
+     * Stops recording changes
+     */
+    @Override
+    public abstract void close();
+
+    String relative(Path path) {
+        return root.relativize(path).toString().replace(root.getFileSystem().getSeparator(), "/");
+    }
+
+    // What happened to a path: whether it existed when the journal was attached, whether it exists now, and whether
+    //  it was written or replaced in between
+    record Net(boolean before, boolean after, boolean changed) {}
+
+    // Net changes, sorted by path: deletions first, then creations and modifications.  Paths created and deleted
+    //  since the journal was attached do not appear at all
+    static List<ChangeLog.Change> net(SortedMap<String, Net> paths) {
+        var ret = new ArrayList<ChangeLog.Change>();
+        paths.forEach((path, net) -> {
+            if (net.before() && !net.after()) ret.add(new ChangeLog.Change(ChangeLog.Kind.DELETED, path));
+        });
+        paths.forEach((path, net) -> {
+            if (!net.before() && net.after()) ret.add(new ChangeLog.Change(ChangeLog.Kind.CREATED, path));
+            else if (net.before() && net.after() && net.changed())
+                ret.add(new ChangeLog.Change(ChangeLog.Kind.MODIFIED, path));
+        });
+        return List.copyOf(ret);
+    }
+
+    // Registers every directory of the tree with the watch service, and records the changes it is notified of in a
+    //  thread of its own
+    private static class Watching extends SandboxJournal {
+
+        // Longest wait for the notifications of the changes made before a call to changes()
+        private final static Duration SYNC_TIMEOUT = Duration.ofSeconds(10);
+
+        private final WatchService watchService;
+        private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+        // Files are created in this directory, outside the sandbox, to know when the watch service has caught up
+        private final Path syncDirectory;
+        private final AtomicLong syncRequested = new AtomicLong();
+        private final Thread thread;
+
+        // First and last change notified of every path, guarded by this
+        private final Map<String, ChangeLog.Kind[]> notified = new HashMap<>();
+        private boolean complete = true;
+        private long synced;
+
+        Watching(Path root, WatchService watchService, Path syncDirectory) throws IOException {
+            super(root);
+            this.watchService = watchService;
+            this.syncDirectory = Files.createDirectories(syncDirectory);
+            try {
+                syncDirectory.register(watchService, ENTRY_CREATE);
+                register(root, false);
+            } catch (IOException | RuntimeException e) {
+                watchService.close();
+                throw e;
+            }
+            thread = Thread.ofPlatform()
+                .daemon()
+                .name("sandbox-journal")
+                .inheritInheritableThreadLocals(false)
+                .start(this::run);
+        }
+
+        // Registers the directory and everything under it; if they were just created, whatever is in them was too
+        private void register(Path directory, boolean created) throws IOException {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    if (created && !dir.equals(directory)) record(ChangeLog.Kind.CREATED, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (created) record(ChangeLog.Kind.CREATED, file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    // Deleted already, which will be notified too
+                    if (exc instanceof NoSuchFileException) return FileVisitResult.CONTINUE;
+                    throw exc;
+                }
+            });
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    var key = watchService.take();
+                    handle(key);
+                    if (!key.reset()) directories.remove(key);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Closed
+            }
+        }
+
+        private void handle(WatchKey key) {
+            var directory = (Path) key.watchable();
+            for (var event: key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    synchronized (this) { complete = false; }
+                    continue;
+                }
+                var path = directory.resolve((Path) event.context());
+                if (directory.equals(syncDirectory)) sync(path);
+                else handle(event.kind(), path);
+            }
+        }
+
+        private void handle(WatchEvent.Kind<?> kind, Path path) {
+            if (kind == ENTRY_CREATE) {
+                record(ChangeLog.Kind.CREATED, path);
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        register(path, true);
+                    } catch (IOException e) {
+                        synchronized (this) { complete = false; }
+                    }
+                }
+            } else if (kind == ENTRY_DELETE) record(ChangeLog.Kind.DELETED, path);
+            else if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) record(ChangeLog.Kind.MODIFIED, path);
+        }
+
+        // Every change made before the sync file was created has been notified by now, though possibly to keys not
+        //  taken yet, whose events are handled right away
+        private void sync(Path file) {
+            var name = file.getFileName().toString();
+            for (var key: directories.keySet()) handle(key);
+            synchronized (this) {
+                synced = Math.max(synced, Long.parseLong(name));
+                notifyAll();
+            }
+        }
+
+        private synchronized void record(ChangeLog.Kind kind, Path path) {
+            notified.computeIfAbsent(relative(path), k -> new ChangeLog.Kind[] { kind, kind })[1] = kind;
+        }
+
+        @Override
+        public ChangeLog changes() {
+            var request = syncRequested.incrementAndGet();
+            var file = syncDirectory.resolve(Long.toString(request));
+            try {
+                Files.createFile(file);
+                var deadline = System.nanoTime() + SYNC_TIMEOUT.toNanos();
+                synchronized (this) {
+                    while (synced < request && thread.isAlive()) {
+                        var wait = deadline - System.nanoTime();
+                        if (wait <= 0) break;
+                        wait(Math.max(1, wait / 1_000_000));
+                    }
+                    // Timed out, or the thread is gone, so the latest changes may be missing
+                    if (synced < request) complete = false;
+                }
+                Files.delete(file);
+            } catch (IOException ioe) {
+                fail(ioe);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+            var paths = new TreeMap<String, Net>();
+            synchronized (this) {
+                // A path first notified as created did not exist before, and one last notified as deleted does not
+                //  exist now.  Anything else notified was written, or deleted and created again
+                notified.forEach((path, kinds) -> paths.put(
+                    path,
+                    new Net(kinds[0] != ChangeLog.Kind.CREATED, kinds[1] != ChangeLog.Kind.DELETED, true)
+                ));
+                return new ChangeLog(net(paths), complete);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                watchService.close();
+                thread.join();
+            } catch (IOException ioe) {
+                fail(ioe);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Compares the size and modification time of every file with those found when attached
+    private static class Polling extends SandboxJournal {
+
+        private record State(boolean directory, long size, FileTime modified) {}
+
+        private final Map<String, State> initial;
+
+        Polling(Path root) throws IOException {
+            super(root);
+            initial = scan();
+        }
+
+        private Map<String, State> scan() throws IOException {
+            var ret = new TreeMap<String, State>();
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root)) ret.put(relative(dir), new State(true, 0, null));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    ret.put(relative(file), new State(false, attrs.size(), attrs.lastModifiedTime()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return ret;
+        }
+
+        @Override
+        public ChangeLog changes() {
+            Map<String, State> current = Map.of();
+            try {
+                current = scan();
+            } catch (IOException ioe) {
+                fail(ioe);
+            }
+            var paths = new TreeMap<String, Net>();
+            for (var path: initial.keySet()) {
+                if (!current.containsKey(path)) paths.put(path, new Net(true, false, true));
+            }
+            for (var entry: current.entrySet()) {
+                var before = initial.get(entry.getKey());
+                var now = entry.getValue();
+                var changed = before == null || before.directory() != now.directory() || !now.directory()
+                    && (before.size() != now.size() || !Objects.equals(before.modified(), now.modified()));
+                paths.put(entry.getKey(), new Net(before != null, true, changed));
+            }
+            return new ChangeLog(net(paths), true);
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,109 @@
+package test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Immutable snapshot of the contents of a sandbox, to be laid as the base of as many other sandboxes as needed.  The
+ * files of the base are made read-only, and every sandbox it is laid on gets writable copies of them, so that an
+ * expensive fixture is built once and handed to every test for the price of copying its files, which tests can
+ * modify in place, delete or replace without affecting the base or each other.  Files are not hard-linked: a link
+ * would share the read-only permissions of the base, and users that ignore them, such as root, would write through
+ * it into the base of every later test.
+ * <pre>
+ *     var base = Sandbox.sandbox();
+ *     base.copyResourceTree("largeFixture");
+ *     try (var layer = base.freeze()) {
+ *         layer.populate(Sandbox.sandbox()).runTest(...);
+ *         layer.populate(Sandbox.sandbox()).runTest(...);
+ *     }
+ * </pre>
+ */
+public class SandboxLayer implements AutoCloseable {
+
+    private final Sandbox base;
+    // Relative paths, separated by '/', of the directories (parents first) and files in the base
+    private final List<String> directories = new ArrayList<>();
+    private final List<String> files = new ArrayList<>();
+    private long bytes = 0;
+
+    SandboxLayer(Sandbox base) throws IOException {
+        this.base = base;
+        var root = base.getRoot();
+        var separator = root.getFileSystem().getSeparator();
+        try (var paths = Files.walk(root)) {
+            for (var path: (Iterable<Path>) paths::iterator) {
+                if (path.equals(root)) continue;
+                var relative = root.relativize(path).toString().replace(separator, "/");
+                if (Files.isDirectory(path)) directories.add(relative);
+                else {
+                    files.add(relative);
+                    bytes += Files.size(path);
+                    ResourceCache.makeReadOnly(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Sandbox the layer was taken from, which must not be modified anymore
+     */
+    public Sandbox base() { return base; }
+
+    /**
+     * @return Number of files in the layer
+     */
+    public int files() { return files.size(); }
+
+    /**
+     * @return Total size of the files in the layer
+     */
+    public long bytes() { return bytes; }
+
+    /**
+     * Lays the contents of the base on the given sandbox: directories are created, parents first, and files are
+     * copied in parallel
+     * @param sandbox Sandbox, of any kind, in which none of the files of the layer exist yet
+     * @return The same sandbox
+     */
+    public Sandbox populate(Sandbox sandbox) {
+        var from = base.getRoot();
+        var to = sandbox.getRoot();
+        try {
+            for (var directory: directories) {
+                var path = to.resolve(directory);
+                if (!Files.isDirectory(path)) Files.createDirectory(path);
+            }
+            files.parallelStream().forEach(file -> {
+                var source = from.resolve(file);
+                var target = to.resolve(file);
+                try {
+                    // Unlike Files.copy, the copy does not take the read-only permissions of the base
+                    ResourceCache.transfer(source, target);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+        } catch (IOException ioe) {
+            fail(ioe);
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+        }
+        sandbox.metrics().recordWrite(files.size(), bytes);
+        return sandbox;
+    }
+
+    /**
+     * Cleans up the base sandbox.  Sandboxes the layer was laid on are not affected
+     */
+    @Override
+    public void close() {
+        base.cleanup();
+    }
+}
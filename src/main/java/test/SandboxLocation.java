@@ -0,0 +1,83 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Base directory of the sandboxes created in the default filesystem.  It is chosen by the <code>sandbox.base</code>
+ * system property (or the JUnit configuration parameter of the same name, or the <code>base</code> attribute of
+ * {@link test.sandbox.SandboxTest}), which can be:
+ * <ul>
+ *     <li><code>auto</code>, the default: <code>/dev/shm</code> if it exists, is writable and has at least 1 GiB free,
+ *     so that sandboxes live in memory while still being regular files for any code under test, or else the JVM
+ *     temporal directory</li>
+ *     <li><code>temp</code>: the JVM temporal directory, <code>java.io.tmpdir</code></li>
+ *     <li>Any other value is the path of the directory, relative to the working directory or absolute, created if
+ *     needed</li>
+ * </ul>
+ */
+public final class SandboxLocation {
+
+    public final static String BASE_PROPERTY = "sandbox.base";
+    public final static String AUTO = "auto";
+    public final static String TEMP = "temp";
+
+    final static Path RAM_DIRECTORY = Path.of("/dev/shm");
+    // Free space the RAM directory must have to be chosen automatically
+    final static long RAM_MIN_USABLE = 1L << 30;
+    // Files at least this large are only written after checking that they fit
+    final static long SPACE_CHECK_THRESHOLD = 16L << 20;
+
+    // Whether the RAM directory can be used, checked once on first use
+    private static class Auto {
+        final static Path DIRECTORY = isUsable(RAM_DIRECTORY, RAM_MIN_USABLE) ? RAM_DIRECTORY : temp();
+    }
+
+    private SandboxLocation() {}
+
+    /**
+     * @return Base directory chosen by the <code>sandbox.base</code> system property
+     */
+    public static Path baseDirectory() {
+        return baseDirectory(System.getProperty(BASE_PROPERTY, AUTO));
+    }
+
+    /**
+     * @param value <code>auto</code>, <code>temp</code> or the path of a directory
+     * @return Base directory for the given value.  It may not exist yet
+     */
+    public static Path baseDirectory(String value) {
+        return switch (value) {
+            case AUTO -> Auto.DIRECTORY;
+            case TEMP -> temp();
+            default -> Path.of(value).toAbsolutePath();
+        };
+    }
+
+    private static Path temp() {
+        return Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    private static boolean isUsable(Path directory, long minUsable) {
+        try {
+            return Files.isDirectory(directory)
+                && Files.isWritable(directory)
+                && Files.getFileStore(directory).getUsableSpace() >= minUsable;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Fails if a large write would not fit in the filesystem of the file, instead of finding out halfway through it
+    static void checkSpace(Path file, long bytes) throws IOException {
+        if (bytes < SPACE_CHECK_THRESHOLD) return;
+        var usable = Files.getFileStore(file.getParent()).getUsableSpace();
+        if (usable < bytes) {
+            throw new FileSystemException(
+                file.toString(), null, "Not enough space: " + bytes + " bytes needed, " + usable + " usable"
+            );
+        }
+    }
+}
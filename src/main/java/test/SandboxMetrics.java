@@ -0,0 +1,142 @@
+package test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * I/O done by a sandbox during its life: what was written into it through its methods (createResource,
+ * copyResource, linkResource, copyResourceTree), how much output was captured, how big the tree was when it was
+ * cleaned up, and how long it took to create it and to clean it up.  Thread safe.  Whatever is not known yet is -1,
+ * or null for durations, e.g. the size of the tree while it is still being deleted in the background, see
+ * {@link #cleanedUp()}.
+ */
+public class SandboxMetrics {
+
+    // Prefix of the keys of the report entries
+    public final static String REPORT_PREFIX = "sandbox.";
+    // Value of the report entries not known yet because the cleanup is still going on in the background
+    public final static String PENDING = "pending";
+
+    private final long createdAt;
+    private final Duration creationTime;
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong capturedBytes = new AtomicLong();
+    private volatile Duration cleanupTime;
+    private volatile Duration lifetime;
+    private volatile long treeFiles = -1;
+    private volatile long treeBytes = -1;
+    // Completed once the cleanup is over, including whatever it left to do in the background
+    private final CompletableFuture<SandboxMetrics> cleanedUp = new CompletableFuture<>();
+
+    // Creation is considered over once the metrics are created
+    SandboxMetrics(long creationStart) {
+        this.createdAt = creationStart;
+        this.creationTime = Duration.ofNanos(System.nanoTime() - creationStart);
+    }
+
+    void recordWrite(long files, long bytes) {
+        filesWritten.addAndGet(files);
+        bytesWritten.addAndGet(bytes);
+    }
+
+    void recordCapture(long bytes) {
+        capturedBytes.addAndGet(bytes);
+    }
+
+    // Called once the caller of the cleanup is not kept waiting anymore, with the work left in the background, if any
+    void recordCleanup(long cleanupStart, CompletableFuture<?> pending) {
+        var now = System.nanoTime();
+        cleanupTime = Duration.ofNanos(now - cleanupStart);
+        lifetime = Duration.ofNanos(now - createdAt);
+        if (pending == null) cleanedUp.complete(this);
+        else pending.whenComplete((result, e) -> cleanedUp.complete(this));
+    }
+
+    void recordTree(DirectoryRemover.Removed removed) {
+        treeBytes = removed.bytes();
+        treeFiles = removed.files();
+    }
+
+    /**
+     * @return Time taken to create the sandbox directory (or to take it from a pool)
+     */
+    public Duration creationTime() { return creationTime; }
+
+    /**
+     * @return Time the cleanup kept the caller waiting; for background cleanups, only until the sandbox was moved
+     *      out of the way
+     */
+    public Duration cleanupTime() { return cleanupTime; }
+
+    /**
+     * @return Time from the creation of the sandbox to the end of its cleanup
+     */
+    public Duration lifetime() { return lifetime; }
+
+    /**
+     * @return Number of files written into the sandbox through its methods
+     */
+    public long filesWritten() { return filesWritten.get(); }
+
+    /**
+     * @return Number of bytes written into the sandbox through its methods, counting linked files as written
+     */
+    public long bytesWritten() { return bytesWritten.get(); }
+
+    /**
+     * @return Number of bytes of standard and error output captured while running in the sandbox
+     */
+    public long capturedBytes() { return capturedBytes.get(); }
+
+    /**
+     * @return Number of files (other than directories) in the sandbox when it was cleaned up, whoever wrote them
+     */
+    public long treeFiles() { return treeFiles; }
+
+    /**
+     * @return Total size of the files in the sandbox when it was cleaned up
+     */
+    public long treeBytes() { return treeBytes; }
+
+    /**
+     * @return Future that completes with these metrics once the sandbox is completely cleaned up, including the
+     *      deletion or recycling of its directory in the background, so that they do not change anymore
+     */
+    public CompletableFuture<SandboxMetrics> cleanedUp() { return cleanedUp.copy(); }
+
+    /**
+     * @return Metrics as key-value pairs, with keys starting by <code>sandbox.</code>, ready to be published as a
+     *      JUnit report entry.  Unknown values are left out, and the size of the tree is <code>pending</code> while
+     *      the sandbox is still being deleted or recycled in the background
+     */
+    public Map<String, String> toReportEntry() {
+        var ret = new LinkedHashMap<String, String>();
+        ret.put(REPORT_PREFIX + "creationMillis", millis(creationTime));
+        if (cleanupTime != null) ret.put(REPORT_PREFIX + "cleanupMillis", millis(cleanupTime));
+        if (lifetime != null) ret.put(REPORT_PREFIX + "lifetimeMillis", millis(lifetime));
+        ret.put(REPORT_PREFIX + "filesWritten", String.valueOf(filesWritten()));
+        ret.put(REPORT_PREFIX + "bytesWritten", String.valueOf(bytesWritten()));
+        ret.put(REPORT_PREFIX + "capturedBytes", String.valueOf(capturedBytes()));
+        var pending = cleanupTime != null && !cleanedUp.isDone();
+        var files = treeFiles;
+        var bytes = treeBytes;
+        if (files >= 0) ret.put(REPORT_PREFIX + "treeFiles", String.valueOf(files));
+        else if (pending) ret.put(REPORT_PREFIX + "treeFiles", PENDING);
+        if (bytes >= 0) ret.put(REPORT_PREFIX + "treeBytes", String.valueOf(bytes));
+        else if (pending) ret.put(REPORT_PREFIX + "treeBytes", PENDING);
+        return ret;
+    }
+
+    private static String millis(Duration duration) {
+        return String.format("%.3f", duration.toNanos() / 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return "SandboxMetrics" + toReportEntry();
+    }
+}
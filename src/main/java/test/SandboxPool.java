@@ -0,0 +1,177 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded set of pre-created sandbox directories.  Sandboxes obtained from the pool do not create a temporal
+ * directory but take an idle one, and their cleanup does not delete it but hands it back to the pool, where it is
+ * emptied in a background thread before being handed out again.
+ */
+public class SandboxPool implements AutoCloseable {
+
+    // Size of the shared pool, if not overridden by this system property
+    public final static String SIZE_PROPERTY = "sandbox.pool.size";
+
+    private static SandboxPool shared;
+
+    private final BlockingQueue<File> idle;
+    // Where the directories of the pool are created
+    private final Path baseDirectory;
+    private final ExecutorService recycler =
+        Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("sandbox-recycler").inheritInheritableThreadLocals(false).factory()
+        );
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * Statistics of the usage of the pool
+     * @param hits Number of sandboxes that were served from an idle directory
+     * @param misses Number of sandboxes that needed a new directory because no idle one was available
+     * @param idle Number of directories ready to be handed out
+     * @param backlog Number of directories returned to the pool and still waiting to be emptied
+     */
+    public record Statistics(long hits, long misses, int idle, int backlog) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    /**
+     * Creates a pool that will keep at most <code>capacity</code> idle directories.  The pool is filled in the
+     * background so that the first sandboxes can already be served from it.
+     * @param capacity Maximum number of idle directories
+     */
+    public SandboxPool(int capacity) {
+        this(capacity, SandboxLocation.baseDirectory());
+    }
+
+    /**
+     * Same, creating the directories under the given base directory instead of the default one
+     * @param capacity Maximum number of idle directories
+     * @param baseDirectory Directory of the default filesystem
+     */
+    public SandboxPool(int capacity, Path baseDirectory) {
+        if (capacity <= 0) throw new IllegalArgumentException("Pool capacity must be positive");
+        idle = new LinkedBlockingQueue<>(capacity);
+        this.baseDirectory = baseDirectory;
+        recycler.execute(() -> {
+            while (!closed && idle.remainingCapacity() > 0) {
+                if (!idle.offer(newDirectory())) break;
+            }
+        });
+    }
+
+    /**
+     * Process-wide pool, created on first use with as many directories as the <code>sandbox.pool.size</code>
+     * system property says (by default, twice the number of processors) and closed on JVM shutdown
+     * @return Shared pool
+     */
+    public static synchronized SandboxPool shared() {
+        if (shared == null) {
+            shared = new SandboxPool(
+                Integer.getInteger(SIZE_PROPERTY, 2 * Runtime.getRuntime().availableProcessors())
+            );
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close));
+        }
+        return shared;
+    }
+
+    /**
+     * Takes an idle directory from the pool, or creates a new one if none is available
+     * @return Sandbox that will give its directory back to the pool on cleanup
+     */
+    public Sandbox sandbox() {
+        if (closed) throw new IllegalStateException("The pool is closed");
+        var start = System.nanoTime();
+        var directory = idle.poll();
+        if (directory != null) hits.incrementAndGet();
+        else {
+            misses.incrementAndGet();
+            directory = newDirectory();
+        }
+        return new Sandbox(directory, this, start);
+    }
+
+    private File newDirectory() {
+        return Sandbox.createTempDirectory(baseDirectory).toFile();
+    }
+
+    public Statistics statistics() {
+        return new Statistics(hits.get(), misses.get(), idle.size(), backlog.get());
+    }
+
+    // Empties the directory in the background and keeps it for later, or removes it if it could not be emptied or
+    //  the pool is already full.  Whatever was in it is recorded in the metrics of the sandbox.  The future completes
+    //  once the directory is done with
+    CompletableFuture<Void> recycle(File directory, SandboxMetrics metrics) {
+        var ret = new CompletableFuture<Void>();
+        backlog.incrementAndGet();
+        try {
+            recycler.execute(() -> {
+                try {
+                    recycleNow(directory, metrics);
+                } finally {
+                    backlog.decrementAndGet();
+                    ret.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected by an already closed pool
+            discard(directory);
+            backlog.decrementAndGet();
+            ret.complete(null);
+        }
+        return ret;
+    }
+
+    private void recycleNow(File directory, SandboxMetrics metrics) {
+        try {
+            if (!closed && directory.isDirectory() && !Files.isSymbolicLink(directory.toPath())) {
+                metrics.recordTree(Sandbox.removeDirectory(directory, true));
+                var contents = directory.list();
+                if (contents != null && contents.length == 0 && idle.offer(directory)) return;
+            }
+        } catch (IOException ignored) {
+            // Not reusable, will be discarded
+        }
+        discard(directory);
+    }
+
+    private void discard(File directory) {
+        try {
+            if (directory.isDirectory()) Sandbox.removeDirectory(directory, false);
+        } catch (IOException ignored) {
+            // Nothing else to do, it will stay in the temporal directory
+        }
+    }
+
+    /**
+     * Waits for the pending directories to be emptied and removes every idle directory
+     */
+    @Override
+    public void close() {
+        closed = true;
+        recycler.shutdown();
+        try {
+            recycler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        File directory;
+        while ((directory = idle.poll()) != null) discard(directory);
+    }
+}
@@ -0,0 +1,111 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Runs an external process in a directory, with both of its outputs drained concurrently by virtual threads into
+//  captured outputs, so that the process never blocks on a full pipe however much it writes
+final class SandboxProcess {
+
+    // How long the outputs are still drained after killing a process that timed out
+    private final static Duration GRACE = Duration.ofSeconds(1);
+
+    private SandboxProcess() {}
+
+    // Result is the exit code of the process.  Fails if the process could not be started, did not finish in time
+    //  (timeout may be null to wait forever) or its output could not be captured
+    static StreamingExecutionContext run(
+        File directory,
+        List<String> command,
+        Duration timeout,
+        int memoryThreshold,
+        Path spillDirectory,
+        boolean indexed
+    ) {
+        var out = new CapturedOutput(memoryThreshold, spillDirectory, indexed);
+        var err = new CapturedOutput(memoryThreshold, spillDirectory, indexed);
+        try {
+            var process = new ProcessBuilder(command).directory(directory).start();
+            // Nothing to read: the process sees the end of its input right away
+            process.getOutputStream().close();
+            var failure = new AtomicReference<IOException>();
+            var drainers = List.of(
+                drain(process.getInputStream(), out, failure),
+                drain(process.getErrorStream(), err, failure)
+            );
+            var deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+            try {
+                if (!awaitExit(process, timeout, deadline) || !awaitDrained(drainers, timeout, deadline)) {
+                    destroy(process);
+                    for (var drainer: drainers) drainer.join(GRACE);
+                    fail("Timed out after " + timeout + ": " + String.join(" ", command));
+                }
+            } catch (InterruptedException e) {
+                destroy(process);
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+            if (failure.get() != null) fail(failure.get());
+            return new StreamingExecutionContext(process.exitValue(), out, err);
+        } catch (IOException ioe) {
+            close(out, err, ioe);
+            fail(ioe);
+            return null;
+        } catch (RuntimeException | Error e) {
+            close(out, err, e);
+            throw e;
+        }
+    }
+
+    private static Thread drain(InputStream from, CapturedOutput to, AtomicReference<IOException> failure) {
+        return Thread.ofVirtual().name("sandbox-exec-drainer").start(() -> {
+            try (from) {
+                from.transferTo(to.sink());
+            } catch (IOException ioe) {
+                failure.compareAndSet(null, ioe);
+            }
+        });
+    }
+
+    private static boolean awaitExit(Process process, Duration timeout, long deadline) throws InterruptedException {
+        if (timeout == null) {
+            process.waitFor();
+            return true;
+        }
+        return process.waitFor(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    // The process may be over while some child it left behind still holds its outputs open
+    private static boolean awaitDrained(List<Thread> drainers, Duration timeout, long deadline)
+        throws InterruptedException {
+        for (var drainer: drainers) {
+            if (timeout == null) drainer.join();
+            else if (!drainer.join(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())))) return false;
+        }
+        return true;
+    }
+
+    // Kills the process along with whatever it started and is still running, so that their outputs get closed
+    private static void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static void close(CapturedOutput out, CapturedOutput err, Throwable failure) {
+        for (var output: List.of(out, err)) {
+            try {
+                output.close();
+            } catch (IOException ioe) {
+                failure.addSuppressed(ioe);
+            }
+        }
+    }
+}
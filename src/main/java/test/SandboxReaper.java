@@ -0,0 +1,198 @@
+package test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Removes what JVMs that died without cleaning up left in a base directory.  Every sandbox directory, and whatever
+//  lives next to it, is named after its owner: the host, and the PID and start time of the JVM that created it, so
+//  that telling orphans apart takes a directory listing and no I/O per sandbox.  Only the names of this host are
+//  judged, as PIDs mean nothing elsewhere: a base directory may be shared with other containers or machines.  The
+//  first sandbox created under a base directory starts a background thread that scans it once and deletes the
+//  orphans it finds at a bounded rate, so that a large backlog does not compete with the tests for the disk
+final class SandboxReaper {
+
+    // Files deleted per second at most, 0 to disable the reaper
+    final static String RATE_PROPERTY = "sandbox.reaper.rate";
+    private final static int DEFAULT_RATE = 2000;
+
+    final static String PREFIX = "sandbox-";
+    // Start times of the same process read by different JVMs may differ by a few clock ticks
+    private final static long START_TOLERANCE_MILLIS = 1000;
+
+    // Prefix of everything created by the JVMs of this host
+    final static String LOCAL = PREFIX + host() + "-";
+    // Prefix of everything created by this JVM
+    final static String OWNER =
+        LOCAL + ProcessHandle.current().pid() + "-" + startMillis(ProcessHandle.current()) + "-";
+
+    // Base directories already scanned, or being scanned, by this JVM
+    private final static Set<Path> scanned = ConcurrentHashMap.newKeySet();
+
+    private SandboxReaper() {}
+
+    // Scans the base directory in the background, unless it was already scanned
+    static void start(Path baseDirectory) {
+        var rate = Integer.getInteger(RATE_PROPERTY, DEFAULT_RATE);
+        if (rate <= 0 || baseDirectory.getFileSystem() != FileSystems.getDefault()) return;
+        if (!scanned.add(baseDirectory.toAbsolutePath().normalize())) return;
+        // Not inheriting the output capture of whatever test created the first sandbox
+        var thread = Thread.ofPlatform()
+            .daemon()
+            .name("sandbox-reaper")
+            .priority(Thread.MIN_PRIORITY)
+            .inheritInheritableThreadLocals(false);
+        thread.start(() -> {
+            try {
+                reap(baseDirectory, rate);
+            } catch (IOException e) {
+                // Nothing to do, the next JVM will try again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Deletes every orphan in the base directory, at most rate files per second.  Returns the number of files and
+    //  directories deleted
+    static long reap(Path baseDirectory, int rate) throws IOException, InterruptedException {
+        if (!Files.isDirectory(baseDirectory)) return 0;
+        var pacer = new Pacer(rate);
+        var ret = 0L;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(baseDirectory, PREFIX + "*")) {
+            for (var entry: entries) {
+                if (!isOrphan(entry.getFileName().toString())) continue;
+                try {
+                    ret += delete(entry, pacer);
+                } catch (IOException e) {
+                    // Left for the next JVM, the rest may still be deleted
+                }
+            }
+        }
+        return ret;
+    }
+
+    // Whether the name has an owner in this host, and it is not running anymore
+    static boolean isOrphan(String name) {
+        if (!name.startsWith(LOCAL) || name.startsWith(OWNER)) return false;
+        var parts = name.substring(LOCAL.length()).split("-", 3);
+        if (parts.length < 3) return false;
+        long pid;
+        long start;
+        try {
+            pid = Long.parseLong(parts[0]);
+            start = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        var owner = ProcessHandle.of(pid);
+        if (owner.isEmpty() || !owner.get().isAlive()) return true;
+        // The PID was reused by another process, unless the start time of either is unknown
+        var ownerStart = startMillis(owner.get());
+        return start != 0 && ownerStart != 0 && Math.abs(ownerStart - start) > START_TOLERANCE_MILLIS;
+    }
+
+    // Hash of whatever tells the PIDs of this JVM apart from those of other hosts, containers included: the boot,
+    //  the hostname and the PID namespace on Linux, and the start time of the first process, which is the boot time
+    //  of the host, or the start time of the container
+    private static String host() {
+        var id = new StringBuilder();
+        for (var file: List.of("/proc/sys/kernel/random/boot_id", "/proc/sys/kernel/hostname")) {
+            try {
+                id.append(Files.readString(Path.of(file)).trim());
+            } catch (IOException e) {
+                // Not Linux
+            }
+            id.append('/');
+        }
+        try {
+            id.append(Files.readSymbolicLink(Path.of("/proc/self/ns/pid")));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Not Linux, or not allowed to read it
+            try {
+                id.append(InetAddress.getLocalHost().getHostName());
+            } catch (IOException ignored) {
+                // The start time of the first process will have to do
+            }
+        }
+        id.append('/').append(ProcessHandle.of(1).map(SandboxReaper::startMillis).orElse(0L));
+        var uuid = UUID.nameUUIDFromBytes(id.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().toHexDigits(uuid.getMostSignificantBits());
+    }
+
+    private static long startMillis(ProcessHandle process) {
+        return process.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+    }
+
+    private static long delete(Path orphan, Pacer pacer) throws IOException, InterruptedException {
+        var ret = new long[1];
+        try {
+            Files.walkFileTree(orphan, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    // Another JVM may be reaping it too
+                    if (exc instanceof NoSuchFileException) return FileVisitResult.CONTINUE;
+                    throw exc;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null && !(exc instanceof NoSuchFileException)) throw exc;
+                    delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private void delete(Path path) throws IOException {
+                    try {
+                        pacer.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    if (Files.deleteIfExists(path)) ret[0]++;
+                }
+            });
+        } catch (InterruptedIOException e) {
+            throw new InterruptedException();
+        }
+        return ret[0];
+    }
+
+    // Spaces deletions evenly, so that there are at most rate of them per second
+    private static class Pacer {
+
+        private final long interval;
+        private long next = System.nanoTime();
+
+        Pacer(int rate) {
+            this.interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        }
+
+        void await() throws InterruptedException {
+            var wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            next = Math.max(next, System.nanoTime() - interval) + interval;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * State of a sandbox at some point, which it can be brought back to as many times as needed with
+ * {@link #restore()}.  Restoring only touches what changed since the snapshot: files added are deleted, files
+ * removed are brought back, and files whose size differs, or whose modification time differs and whose hash does
+ * not match anymore, are rewritten.  Files modified right before the snapshot are always checked by their hash, as
+ * writing them again may not change their modification time on filesystems with coarse timestamps.  Taking the
+ * snapshot does not modify the sandbox.  Everything else is left alone, so restoring a large tree after a test that
+ * changed a couple of files takes as long as walking the tree.
+ * <pre>
+ *     for (var i = 0; i < 100; i++) sb.createResource("data/" + i, content(i));
+ *     var snapshot = sb.snapshot();
+ *     // Some test modifying the sandbox
+ *     snapshot.restore();
+ *     // Another test, starting from the same state
+ * </pre>
+ */
+public class SandboxSnapshot implements AutoCloseable {
+
+    // Files modified this close to the snapshot are racy: writes right after the snapshot may leave their
+    //  modification time as it was, on filesystems with coarse timestamps
+    private final static Duration RACY_WINDOW = Duration.ofSeconds(2);
+
+    private record Entry(long size, FileTime modified, byte[] hash, boolean racy) {}
+
+    /**
+     * What changed in the sandbox since the snapshot, and was undone by a restore
+     * @param added Files created since the snapshot, now deleted
+     * @param removed Files deleted since the snapshot, now brought back
+     * @param changed Files modified since the snapshot, now rewritten
+     */
+    public record Delta(int added, int removed, int changed) {
+        public boolean isEmpty() {
+            return added == 0 && removed == 0 && changed == 0;
+        }
+    }
+
+    private final Sandbox sandbox;
+    // Copy of the contents of every file, with the same relative paths as in the sandbox
+    private final Path store;
+    // Relative paths, separated by '/'
+    private final SortedMap<String, Entry> files = new TreeMap<>();
+    private final SortedSet<String> directories = new TreeSet<>();
+
+    SandboxSnapshot(Sandbox sandbox, Path store) throws IOException {
+        this.sandbox = sandbox;
+        this.store = store;
+        var root = sandbox.getRoot();
+        var racyLimit = FileTime.fromMillis(System.currentTimeMillis() - RACY_WINDOW.toMillis());
+        Files.createDirectories(store);
+        try (var paths = Files.walk(root)) {
+            for (var path: (Iterable<Path>) paths::iterator) {
+                if (path.equals(root)) continue;
+                var relative = relative(root, path);
+                var copy = store.resolve(relative);
+                if (Files.isDirectory(path)) {
+                    directories.add(relative);
+                    Files.createDirectory(copy);
+                    continue;
+                }
+                var digest = newDigest();
+                try (var is = new DigestInputStream(Files.newInputStream(path), digest)) {
+                    Files.copy(is, copy);
+                }
+                var modified = Files.getLastModifiedTime(path);
+                var racy = modified.compareTo(racyLimit) > 0;
+                files.put(relative, new Entry(Files.size(copy), modified, digest.digest(), racy));
+            }
+        }
+    }
+
+    /**
+     * @return Number of files in the snapshot
+     */
+    public int files() { return files.size(); }
+
+    /**
+     * Brings the sandbox back to the state it had when the snapshot was taken, touching only what changed since
+     * @return What was undone
+     */
+    public Delta restore() {
+        var root = sandbox.getRoot();
+        var added = new AtomicInteger();
+        // Files of the snapshot found in the sandbox, to be checked, along with their current attributes
+        var found = new HashMap<String, BasicFileAttributes>();
+        var foundDirectories = new HashSet<String>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (dir.equals(root)) return FileVisitResult.CONTINUE;
+                    var relative = relative(root, dir);
+                    if (directories.contains(relative)) {
+                        foundDirectories.add(relative);
+                        return FileVisitResult.CONTINUE;
+                    }
+                    // Nothing in it belongs to the snapshot
+                    added.addAndGet((int) DirectoryRemover.remove(dir, false).files());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    var relative = relative(root, file);
+                    if (files.containsKey(relative) && attrs.isRegularFile()) found.put(relative, attrs);
+                    else {
+                        Files.delete(file);
+                        added.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (var directory: directories) {
+                if (!foundDirectories.contains(directory)) Files.createDirectory(root.resolve(directory));
+            }
+        } catch (IOException ioe) {
+            fail(ioe);
+        }
+        var removed = new AtomicInteger();
+        var changed = new AtomicInteger();
+        var bytes = new AtomicLong();
+        try {
+            files.entrySet().parallelStream().forEach(e -> {
+                var relative = e.getKey();
+                var entry = e.getValue();
+                var attrs = found.get(relative);
+                try {
+                    if (attrs == null) removed.incrementAndGet();
+                    else if (!isChanged(root.resolve(relative), attrs, entry)) return;
+                    else changed.incrementAndGet();
+                    var target = root.resolve(relative);
+                    Files.copy(store.resolve(relative), target, StandardCopyOption.REPLACE_EXISTING);
+                    Files.setLastModifiedTime(target, entry.modified());
+                    bytes.addAndGet(entry.size());
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+        }
+        sandbox.metrics().recordWrite(removed.get() + changed.get(), bytes.get());
+        return new Delta(added.get(), removed.get(), changed.get());
+    }
+
+    // Size first, then modification time, and only if the latter differs or cannot be trusted, the hash of the
+    //  contents
+    private static boolean isChanged(Path file, BasicFileAttributes attrs, Entry entry) throws IOException {
+        if (attrs.size() != entry.size()) return true;
+        if (!entry.racy() && attrs.lastModifiedTime().equals(entry.modified())) return false;
+        if (!Arrays.equals(hash(file), entry.hash())) return true;
+        // Same contents, only touched: make it fast to check next time
+        Files.setLastModifiedTime(file, entry.modified());
+        return false;
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        var digest = newDigest();
+        try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+            is.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM must support it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path).toString().replace(root.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Removes the copy of the contents of the sandbox.  The snapshot cannot be restored anymore
+     */
+    @Override
+    public void close() {
+        try {
+            if (Files.isDirectory(store)) DirectoryRemover.remove(store, false);
+        } catch (IOException ioe) {
+            fail(ioe);
+        }
+    }
+}
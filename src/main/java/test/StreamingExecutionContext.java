@@ -0,0 +1,21 @@
+package test;
+
+import java.io.IOException;
+
+// Same as ExecutionContext, but with the output kept as it was captured (possibly on disk) instead of in strings.
+//  Closing it removes whatever was spilled to disk
+public record StreamingExecutionContext(
+    Object result,
+    CapturedOutput out,
+    CapturedOutput err
+) implements AutoCloseable {
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            err.close();
+        }
+    }
+}
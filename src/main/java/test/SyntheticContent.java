@@ -0,0 +1,114 @@
+package test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic content of a file of any size, generated as it is written instead of held in memory, for
+ * {@link Sandbox#createResource(String, SyntheticContent)}.  The same content always produces the same bytes.
+ * <pre>
+ *     sb.createResource("huge.bin", SyntheticContent.random(2L &lt;&lt; 30, 42));
+ * </pre>
+ */
+public abstract class SyntheticContent {
+
+    private final long size;
+
+    private SyntheticContent(long size) {
+        if (size < 0) throw new IllegalArgumentException("Size cannot be negative");
+        this.size = size;
+    }
+
+    /**
+     * @param size Size of the file
+     * @return Zeros, written as a sparse file where the filesystem supports it, so that it takes no space on disk
+     */
+    public static SyntheticContent sparse(long size) {
+        return new SyntheticContent(size) {
+            @Override
+            long spaceNeeded() { return 0; }
+
+            @Override
+            void writeTo(FileChannel channel, ByteBuffer buffer) throws IOException {
+                if (size == 0) return;
+                // Only the last byte is written, everything before it is a hole
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+        };
+    }
+
+    /**
+     * @param size Size of the file
+     * @param seed Seed of the pseudo-random generator; the same seed always gives the same content
+     * @return Pseudo-random bytes
+     */
+    public static SyntheticContent random(long size, long seed) {
+        return new SyntheticContent(size) {
+            @Override
+            void writeTo(FileChannel channel, ByteBuffer buffer) throws IOException {
+                var random = new SplittableRandom(seed);
+                var remaining = size;
+                while (remaining > 0) {
+                    buffer.clear();
+                    var length = (int) Math.min(buffer.capacity(), remaining);
+                    while (buffer.position() + Long.BYTES <= length) buffer.putLong(random.nextLong());
+                    if (buffer.position() < length) {
+                        var last = random.nextLong();
+                        while (buffer.position() < length) {
+                            buffer.put((byte) last);
+                            last >>>= 8;
+                        }
+                    }
+                    remaining -= writeFully(channel, buffer.flip());
+                }
+            }
+        };
+    }
+
+    /**
+     * @param size Size of the file
+     * @param pattern Bytes repeated over and over; the last repetition may be cut
+     * @return Repetitions of the pattern
+     */
+    public static SyntheticContent repeating(long size, byte[] pattern) {
+        if (pattern.length == 0) throw new IllegalArgumentException("Pattern cannot be empty");
+        var copy = pattern.clone();
+        return new SyntheticContent(size) {
+            @Override
+            void writeTo(FileChannel channel, ByteBuffer buffer) throws IOException {
+                // The buffer is filled once with whole repetitions, so that every write starts with the pattern
+                if (copy.length > buffer.capacity()) buffer = ByteBuffer.wrap(copy);
+                else {
+                    buffer.clear();
+                    while (buffer.remaining() >= copy.length) buffer.put(copy);
+                    buffer.flip();
+                }
+                var full = buffer.limit();
+                var remaining = size;
+                while (remaining > 0) {
+                    buffer.position(0).limit((int) Math.min(full, remaining));
+                    remaining -= writeFully(channel, buffer);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Size of the file
+     */
+    public long size() { return size; }
+
+    // Space the file takes on disk, at most
+    long spaceNeeded() { return size; }
+
+    // Writes the whole content at the current position of the channel, using the given direct buffer as needed
+    abstract void writeTo(FileChannel channel, ByteBuffer buffer) throws IOException;
+
+    static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        var ret = buffer.remaining();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        return ret;
+    }
+}
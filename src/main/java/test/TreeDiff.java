@@ -0,0 +1,160 @@
+package test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Differences between an expected tree of files and the actual one, as found by
+ * {@link Sandbox#diff(String, String)}.  Only files are compared, directories are not
+ * @param missing Relative paths (separated by '/') of the expected files that are not in the actual tree
+ * @param extra Relative paths of the files in the actual tree that were not expected
+ * @param differing Files in both trees whose contents differ
+ */
+public record TreeDiff(List<String> missing, List<String> extra, List<Difference> differing) {
+
+    /**
+     * Some file whose contents differ
+     * @param path Relative path of the file
+     * @param offset Position of the first byte that differs; if one of the files is a prefix of the other, the size of
+     *               the shorter one
+     * @param expectedSize Size of the expected file, -1 if unknown
+     * @param actualSize Size of the actual file
+     */
+    public record Difference(String path, long offset, long expectedSize, long actualSize) {}
+
+    // Files at least this big are compared through memory-mapped chunks, smaller ones through plain reads
+    final static long MAP_THRESHOLD = 1 << 20;
+    private final static long MAP_CHUNK = 64L << 20;
+    private final static int BUFFER_SIZE = 64 << 10;
+
+    // Read buffers of every thread comparing files, for the expected and the actual contents
+    private final static ThreadLocal<byte[][]> buffers =
+        ThreadLocal.withInitial(() -> new byte[][] { new byte[BUFFER_SIZE], new byte[BUFFER_SIZE] });
+
+    public boolean isEmpty() {
+        return missing.isEmpty() && extra.isEmpty() && differing.isEmpty();
+    }
+
+    // Compares every file of the expected tree with the file in the same relative path under the actual directory,
+    //  in parallel
+    static TreeDiff compare(ResourceTree expected, Path actual) throws IOException {
+        var actualFiles = new TreeMap<String, Path>();
+        if (Files.isDirectory(actual)) try (var paths = Files.walk(actual)) {
+            var separator = actual.getFileSystem().getSeparator();
+            paths.filter(Files::isRegularFile)
+                .forEach(p -> actualFiles.put(actual.relativize(p).toString().replace(separator, "/"), p));
+        }
+        var missing = new ArrayList<String>();
+        var common = new ArrayList<String>();
+        for (var path: expected.files().keySet()) (actualFiles.containsKey(path) ? common : missing).add(path);
+        var extra = actualFiles.keySet().stream().filter(p -> !expected.files().containsKey(p)).toList();
+        List<Difference> differing;
+        try {
+            differing = common.parallelStream()
+                .map(path -> compare(path, expected.files().get(path), actualFiles.get(path)))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Difference::path))
+                .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new TreeDiff(List.copyOf(missing), extra, differing);
+    }
+
+    private static Difference compare(String path, ResourceTree.Source expected, Path actual) {
+        try {
+            var actualSize = Files.size(actual);
+            var expectedSize = expected.size();
+            long offset;
+            if (expected.path() != null) {
+                offset = mismatch(expected.path(), actual);
+            } else try (var is = expected.open(); var actualIs = Files.newInputStream(actual)) {
+                offset = mismatch(is, actualIs);
+            }
+            return offset < 0 ? null : new Difference(path, offset, expectedSize, actualSize);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Position of the first byte that differs in both files, found through memory-mapped chunks if both are large
+     * enough and live in the default filesystem, or through buffered reads otherwise.  Sizes are checked first, so
+     * that files of different size are only read up to the size of the shorter one
+     * @return -1 if both files have the same contents
+     */
+    static long mismatch(Path expected, Path actual) throws IOException {
+        var expectedSize = Files.size(expected);
+        var actualSize = Files.size(actual);
+        var common = Math.min(expectedSize, actualSize);
+        if (common < MAP_THRESHOLD
+            || expected.getFileSystem() != FileSystems.getDefault()
+            || actual.getFileSystem() != FileSystems.getDefault()) {
+            try (var expectedIs = Files.newInputStream(expected); var actualIs = Files.newInputStream(actual)) {
+                var ret = mismatch(expectedIs, actualIs, common);
+                return ret < 0 && expectedSize != actualSize ? common : ret;
+            }
+        }
+        try (
+            var expectedChannel = FileChannel.open(expected, READ);
+            var actualChannel = FileChannel.open(actual, READ)
+        ) {
+            for (var position = 0L; position < common; position += MAP_CHUNK) {
+                var length = Math.min(MAP_CHUNK, common - position);
+                var expectedChunk = expectedChannel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                var actualChunk = actualChannel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                var index = expectedChunk.mismatch(actualChunk);
+                if (index >= 0) return position + index;
+            }
+        }
+        return expectedSize == actualSize ? -1 : common;
+    }
+
+    // Position of the first byte that differs in both streams, -1 if they have the same contents
+    private static long mismatch(InputStream expected, InputStream actual) throws IOException {
+        return mismatch(expected, actual, Long.MAX_VALUE);
+    }
+
+    // Same, reading at most limit bytes from each stream
+    private static long mismatch(InputStream expected, InputStream actual, long limit) throws IOException {
+        var buffer = buffers.get();
+        var position = 0L;
+        while (position < limit) {
+            var length = (int) Math.min(BUFFER_SIZE, limit - position);
+            var expectedRead = expected.readNBytes(buffer[0], 0, length);
+            var actualRead = actual.readNBytes(buffer[1], 0, length);
+            var index = Arrays.mismatch(buffer[0], 0, expectedRead, buffer[1], 0, actualRead);
+            if (index >= 0) return position + index;
+            if (expectedRead < length) return -1;
+            position += expectedRead;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        var ret = new StringBuilder();
+        for (var path: missing) ret.append("Missing: ").append(path).append('\n');
+        for (var path: extra) ret.append("Extra: ").append(path).append('\n');
+        for (var difference: differing) {
+            ret.append("Differing: ").append(difference.path())
+                .append(" at byte ").append(difference.offset())
+                .append(" (expected ").append(difference.expectedSize())
+                .append(" bytes, found ").append(difference.actualSize()).append(")\n");
+        }
+        return ret.toString();
+    }
+}
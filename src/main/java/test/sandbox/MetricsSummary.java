@@ -0,0 +1,97 @@
+package test.sandbox;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import test.SandboxMetrics;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Metrics of every sandbox test of the run, printed as a summary of the slowest and the heaviest ones once the run is
+//  over and the cleanups left in the background are done.  Lives in the store of the root extension context, which
+//  closes it at the end of the run
+class MetricsSummary implements ExtensionContext.Store.CloseableResource {
+
+    // Number of tests listed in each ranking of the summary; the summary is not printed if it is 0 or missing
+    final static String SIZE_PARAMETER = "sandbox.metrics.summary";
+
+    private record Entry(String test, SandboxMetrics metrics) {}
+
+    private final int size;
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    MetricsSummary(int size) {
+        this.size = size;
+    }
+
+    void add(String test, SandboxMetrics metrics) {
+        entries.add(new Entry(test, metrics));
+    }
+
+    @Override
+    public void close() {
+        if (entries.isEmpty()) return;
+        var cleanups = entries.stream().map(e -> e.metrics().cleanedUp()).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(cleanups).get(1, TimeUnit.MINUTES);
+        } catch (ExecutionException | TimeoutException e) {
+            // Printed with whatever is known
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.print(render());
+    }
+
+    // Sandboxes whose lifetime is not known, not cleaned up yet, are not ranked by it
+    String render() {
+        var ret = new StringBuilder();
+        ret.append("Sandbox metrics of ").append(entries.size()).append(" tests\n");
+        ret.append("Slowest:\n");
+        for (var entry: top(e -> e.metrics().lifetime() != null, e -> e.metrics().lifetime().toNanos())) {
+            var metrics = entry.metrics();
+            ret.append(String.format(
+                "  %10.3f ms  %s (creation %s, cleanup %s)%n",
+                metrics.lifetime().toNanos() / 1e6,
+                entry.test(),
+                millis(metrics.creationTime()),
+                millis(metrics.cleanupTime())
+            ));
+        }
+        ret.append("Heaviest:\n");
+        for (var entry: top(e -> true, MetricsSummary::weight)) {
+            var metrics = entry.metrics();
+            ret.append(String.format(
+                "  %12d bytes  %s (%d files written, %d bytes written, %s at cleanup, %d bytes captured)%n",
+                weight(entry),
+                entry.test(),
+                metrics.filesWritten(),
+                metrics.bytesWritten(),
+                metrics.treeBytes() < 0 ? "unknown size" : metrics.treeBytes() + " bytes",
+                metrics.capturedBytes()
+            ));
+        }
+        return ret.toString();
+    }
+
+    // Bytes on disk at some point (whatever is bigger, what was written through the sandbox or what was found at
+    //  cleanup) plus captured output
+    private static long weight(Entry entry) {
+        var metrics = entry.metrics();
+        return Math.max(metrics.bytesWritten(), metrics.treeBytes()) + metrics.capturedBytes();
+    }
+
+    private List<Entry> top(Predicate<Entry> known, ToLongFunction<Entry> key) {
+        return entries.stream().filter(known).sorted(Comparator.comparingLong(key).reversed()).limit(size).toList();
+    }
+
+    private static String millis(Duration duration) {
+        return duration == null ? "unknown" : String.format("%.3f ms", duration.toNanos() / 1e6);
+    }
+}
@@ -0,0 +1,17 @@
+package test.sandbox;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks a static method of a test class, taking a {@link test.Sandbox} as its only parameter, that populates the
+ * sandboxes of its {@link SandboxTest} methods.  With the default scope, it runs on the sandbox of every test; with
+ * a class or run scope, it runs only once, on a base sandbox that is then frozen and laid on the sandbox of every
+ * test as copies (see {@link test.SandboxLayer}).  Inherited fixtures run before the class' own ones
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface SandboxFixture {}
@@ -1,18 +1,75 @@
 package test.sandbox;
 
 import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.commons.support.HierarchyTraversalMode;
+import org.junit.platform.commons.support.ReflectionSupport;
 import test.Sandbox;
+import test.SandboxLayer;
+import test.SandboxLocation;
+import test.SandboxPool;
+import test.SandboxSnapshot;
 
-public class SandboxProvider implements AfterTestExecutionCallback, ParameterResolver {
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+public class SandboxProvider implements AfterTestExecutionCallback, InvocationInterceptor, ParameterResolver {
 
     private final static Namespace NAMESPACE =
         Namespace.create(SandboxProvider.class);
     private final static String KEY = "sandbox";
+    private final static String REUSED_KEY = "reused";
+
+    // Settings of the sandboxes of a test, from either of the annotations
+    private record Settings(
+        SandboxTest.Storage storage,
+        String base,
+        boolean pooled,
+        boolean backgroundCleanup,
+        int threads,
+        SandboxTest.Scope scope,
+        boolean reuse
+    ) {
+        final static Settings DEFAULT =
+            new Settings(SandboxTest.Storage.DISK, "", false, false, 1, SandboxTest.Scope.METHOD, false);
+
+        static Settings of(SandboxTest annotation) {
+            return new Settings(
+                annotation.storage(),
+                annotation.base(),
+                annotation.pooled(),
+                annotation.backgroundCleanup(),
+                annotation.threads(),
+                annotation.scope(),
+                false
+            );
+        }
+
+        static Settings of(SandboxTemplate annotation) {
+            return new Settings(
+                annotation.storage(),
+                annotation.base(),
+                annotation.pooled(),
+                annotation.backgroundCleanup(),
+                1,
+                annotation.scope(),
+                annotation.reuse()
+            );
+        }
+    }
 
     @Override
     public boolean supportsParameter(
@@ -27,14 +84,241 @@ public class SandboxProvider implements AfterTestExecutionCallback, ParameterRes
         ParameterContext parameterContext,
         ExtensionContext extensionContext
     ) throws ParameterResolutionException {
-        var sb = Sandbox.sandbox();
+        var settings = findSettings(extensionContext);
+        // Running concurrently, every thread gets a sandbox of its own in place of this placeholder, which the test
+        //  method never sees, see interceptTestMethod.  There is no sandbox for other methods, such as @BeforeEach ones
+        if (settings.threads() > 1) {
+            if (!parameterContext.getDeclaringExecutable().equals(extensionContext.getTestMethod().orElse(null)))
+                throw new ParameterResolutionException(
+                    "Only the test method can take a Sandbox when it runs in several threads, each with a sandbox of"
+                        + " its own: " + parameterContext.getDeclaringExecutable()
+                );
+            return null;
+        }
+        var template = templateContext(extensionContext);
+        if (settings.reuse() && template != null) {
+            var reused = template.getStore(NAMESPACE).getOrComputeIfAbsent(
+                ReusedSandbox.class,
+                key -> new ReusedSandbox(newSandbox(extensionContext, settings), settings.backgroundCleanup()),
+                ReusedSandbox.class
+            );
+            // Taken once per invocation, however many Sandbox parameters it has, and given back when it is over
+            var store = extensionContext.getStore(NAMESPACE);
+            if (store.get(REUSED_KEY) == null) {
+                var sb = reused.next();
+                store.put(REUSED_KEY, (ExtensionContext.Store.CloseableResource) reused::release);
+                return sb;
+            }
+            return reused.sandbox;
+        }
+        var sb = newSandbox(extensionContext, settings);
         extensionContext.getStore(NAMESPACE).put(KEY, sb);
         return sb;
     }
 
+    // Sandbox shared by every invocation of a test template, kept in the store of the template and cleaned up when
+    //  all of its invocations are over.  Retained meanwhile, so that invocations cleaning it up (e.g. through runTest)
+    //  do not remove it from under the next ones.  As every invocation restores the sandbox the previous one used,
+    //  invocations running concurrently fail instead of waiting for each other, which could deadlock the workers
+    //  JUnit runs them in
+    static class ReusedSandbox implements ExtensionContext.Store.CloseableResource {
+
+        private final Sandbox sandbox;
+        private final boolean backgroundCleanup;
+        // State right after creating the sandbox, which every invocation starts from
+        private final SandboxSnapshot initial;
+        private final Semaphore inUse = new Semaphore(1);
+        private boolean used = false;
+
+        ReusedSandbox(Sandbox sandbox, boolean backgroundCleanup) {
+            this.sandbox = sandbox.retain();
+            this.backgroundCleanup = backgroundCleanup;
+            this.initial = sandbox.snapshot();
+        }
+
+        // Brings the sandbox back to its initial state for the next invocation, which holds it until release
+        Sandbox next() {
+            if (!inUse.tryAcquire())
+                throw new ExtensionConfigurationException(
+                    "Invocations of a @SandboxTemplate(reuse = true) cannot run concurrently"
+                );
+            try {
+                if (used) initial.restore();
+            } catch (RuntimeException | Error e) {
+                inUse.release();
+                throw e;
+            }
+            used = true;
+            return sandbox;
+        }
+
+        void release() {
+            inUse.release();
+        }
+
+        @Override
+        public void close() {
+            initial.close();
+            sandbox.release();
+            if (backgroundCleanup) sandbox.cleanupInBackground();
+            else sandbox.cleanup();
+        }
+    }
+
+    // Runs the test method in as many threads as the annotation says, each one with a sandbox of its own
+    @Override
+    public void interceptTestMethod(
+        Invocation<Void> invocation,
+        ReflectiveInvocationContext<Method> invocationContext,
+        ExtensionContext extensionContext
+    ) throws Throwable {
+        var settings = findSettings(extensionContext);
+        if (settings.threads() <= 1) {
+            invocation.proceed();
+            return;
+        }
+        invocation.skip();
+        var method = invocationContext.getExecutable();
+        var parameters = method.getParameterTypes();
+        Sandbox.runConcurrently(
+            settings.threads(),
+            () -> newSandbox(extensionContext, settings),
+            (Sandbox sb) -> {
+                var arguments = invocationContext.getArguments().toArray();
+                for (var i = 0; i < arguments.length; i++) if (parameters[i] == Sandbox.class) arguments[i] = sb;
+                return ReflectionSupport.invokeMethod(method, invocationContext.getTarget().orElse(null), arguments);
+            },
+            false
+        );
+    }
+
     @Override
     public void afterTestExecution(ExtensionContext extensionContext) throws Exception {
         var sandbox = (Sandbox) extensionContext.getStore(NAMESPACE).get(KEY);
-        if (sandbox != null) sandbox.cleanup();
+        if (sandbox == null) return;
+        if (findSettings(extensionContext).backgroundCleanup()) sandbox.cleanupInBackground();
+        else sandbox.cleanup();
+        publishMetrics(extensionContext, sandbox);
+    }
+
+    // Publishes the metrics of the sandbox as a report entry of the test, and keeps them for the summary of the run
+    //  if it was asked for.  Sandboxes still being deleted or recycled in the background are reported with the size of
+    //  their tree pending, while the summary waits for it
+    private static void publishMetrics(ExtensionContext extensionContext, Sandbox sandbox) {
+        extensionContext.publishReportEntry(sandbox.metrics().toReportEntry());
+        var size = extensionContext.getConfigurationParameter(MetricsSummary.SIZE_PARAMETER, Integer::parseInt);
+        if (size.isEmpty() || size.get() <= 0) return;
+        extensionContext.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(
+            MetricsSummary.class,
+            key -> new MetricsSummary(size.get()),
+            MetricsSummary.class
+        ).add(
+            extensionContext.getRequiredTestClass().getSimpleName() + "." + extensionContext.getDisplayName(),
+            sandbox.metrics()
+        );
+    }
+
+    // New sandbox for a test, populated by the fixtures of the test class: directly if the scope is the method, or
+    //  else through a base layer shared by the class or the run
+    private static Sandbox newSandbox(ExtensionContext extensionContext, Settings settings) {
+        var fixtures = findFixtures(extensionContext);
+        var scope = settings.scope();
+        var baseDirectory = baseDirectory(extensionContext, settings);
+        var sb = newSandbox(settings, baseDirectory);
+        try {
+            if (scope == SandboxTest.Scope.METHOD) {
+                for (var fixture: fixtures) ReflectionSupport.invokeMethod(fixture, null, sb);
+                return sb;
+            }
+            var context = scope == SandboxTest.Scope.CLASS ? classContext(extensionContext) : extensionContext.getRoot();
+            var storage = settings.storage();
+            var base = context.getStore(NAMESPACE).getOrComputeIfAbsent(
+                List.of(SharedBase.class, storage, baseDirectory, fixtures),
+                key -> new SharedBase(newLayer(storage, baseDirectory, fixtures)),
+                SharedBase.class
+            );
+            return base.layer().populate(sb);
+        } catch (RuntimeException | Error e) {
+            sb.cleanup();
+            throw e;
+        }
+    }
+
+    private static Sandbox newSandbox(Settings settings, Path baseDirectory) {
+        if (settings.storage() == SandboxTest.Storage.MEMORY) return Sandbox.inMemory();
+        if (settings.pooled()) return SandboxPool.shared().sandbox();
+        return Sandbox.sandbox(baseDirectory);
+    }
+
+    // Base directory from the annotation, or else from the configuration of the run, which JUnit takes from the
+    //  system properties too
+    private static Path baseDirectory(ExtensionContext extensionContext, Settings settings) {
+        var value = settings.base().isEmpty()
+            ? extensionContext.getConfigurationParameter(SandboxLocation.BASE_PROPERTY).orElse(SandboxLocation.AUTO)
+            : settings.base();
+        return SandboxLocation.baseDirectory(value);
+    }
+
+    // Runs the fixtures once on a new base sandbox, and freezes it
+    private static SandboxLayer newLayer(SandboxTest.Storage storage, Path baseDirectory, List<Method> fixtures) {
+        var base = storage == SandboxTest.Storage.MEMORY ? Sandbox.inMemory() : Sandbox.sandbox(baseDirectory);
+        try {
+            for (var fixture: fixtures) ReflectionSupport.invokeMethod(fixture, null, base);
+            return base.freeze();
+        } catch (RuntimeException | Error e) {
+            base.cleanup();
+            throw e;
+        }
+    }
+
+    // Base layer kept in the store of the class or the root context, removed when the class or the run is over
+    private record SharedBase(SandboxLayer layer) implements ExtensionContext.Store.CloseableResource {
+        @Override
+        public void close() {
+            layer.close();
+        }
+    }
+
+    // Fixture methods of the test class, inherited ones first
+    private static List<Method> findFixtures(ExtensionContext extensionContext) {
+        var ret = AnnotationSupport.findAnnotatedMethods(
+            extensionContext.getRequiredTestClass(),
+            SandboxFixture.class,
+            HierarchyTraversalMode.TOP_DOWN
+        );
+        for (var method: ret) {
+            if (!Modifier.isStatic(method.getModifiers())
+                || method.getParameterCount() != 1
+                || method.getParameterTypes()[0] != Sandbox.class)
+                throw new ExtensionConfigurationException(
+                    "@SandboxFixture method must be static and take a Sandbox as its only parameter: " + method
+                );
+        }
+        return ret;
+    }
+
+    // Context of the test class, above the contexts of its test methods and their invocations
+    private static ExtensionContext classContext(ExtensionContext extensionContext) {
+        var ret = extensionContext;
+        while (ret.getTestMethod().isPresent() && ret.getParent().isPresent()) ret = ret.getParent().get();
+        return ret;
+    }
+
+    // Context of the test template whose invocation is running, if any
+    private static ExtensionContext templateContext(ExtensionContext extensionContext) {
+        var parent = extensionContext.getParent().orElse(null);
+        return parent != null && parent.getTestMethod().isPresent() ? parent : null;
+    }
+
+    // Looks for the @SandboxTemplate or @SandboxTest annotations on the test method, or else on the test class
+    private static Settings findSettings(ExtensionContext extensionContext) {
+        return findSettings(extensionContext.getElement())
+            .or(() -> findSettings(extensionContext.getTestClass()))
+            .orElse(Settings.DEFAULT);
+    }
+
+    private static Optional<Settings> findSettings(Optional<? extends AnnotatedElement> element) {
+        return AnnotationSupport.findAnnotation(element, SandboxTemplate.class).map(Settings::of)
+            .or(() -> AnnotationSupport.findAnnotation(element, SandboxTest.class).map(Settings::of));
     }
 }
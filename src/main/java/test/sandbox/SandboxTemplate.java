@@ -0,0 +1,61 @@
+package test.sandbox;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Sandbox settings for tests that are not plain <code>@Test</code> methods, such as <code>@ParameterizedTest</code>,
+ * <code>@RepeatedTest</code> or <code>@TestFactory</code>, whose <code>Sandbox</code> parameters are resolved just
+ * as the ones of a {@link SandboxTest}.  Every invocation gets a sandbox of its own, unless told to reuse it.
+ * <pre>
+ *     &#64;ParameterizedTest
+ *     &#64;ValueSource(ints = { 1, 2, 3 })
+ *     &#64;SandboxTemplate(reuse = true)
+ *     public void test(int value, Sandbox sb) { ... }
+ * </pre>
+ */
+@Target({ TYPE, METHOD, ANNOTATION_TYPE })
+@Retention(RUNTIME)
+@ExtendWith(SandboxProvider.class)
+public @interface SandboxTemplate {
+
+    /**
+     * Same as {@link SandboxTest#storage()}
+     */
+    SandboxTest.Storage storage() default SandboxTest.Storage.DISK;
+
+    /**
+     * Same as {@link SandboxTest#base()}
+     */
+    String base() default "";
+
+    /**
+     * Same as {@link SandboxTest#pooled()}
+     */
+    boolean pooled() default false;
+
+    /**
+     * Same as {@link SandboxTest#backgroundCleanup()}
+     */
+    boolean backgroundCleanup() default false;
+
+    /**
+     * Same as {@link SandboxTest#scope()}
+     */
+    SandboxTest.Scope scope() default SandboxTest.Scope.METHOD;
+
+    /**
+     * If true, every invocation of the template gets the same sandbox, brought back to the state it had after the
+     * fixtures ran (see {@link test.SandboxSnapshot}) before each invocation but the first, and cleaned up once all
+     * of them are over.  The invocations must not run concurrently: those starting while another one is running
+     * fail
+     */
+    boolean reuse() default false;
+}
@@ -16,4 +16,60 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @ExtendWith(SandboxProvider.class)
 @Test
 public @interface SandboxTest {
+
+    enum Storage {
+        // Temporal directory in the default filesystem
+        DISK,
+        // Brand-new in-memory filesystem for each sandbox, to be handled through Sandbox.getRoot() and other Path
+        //  based methods
+        MEMORY
+    }
+
+    enum Scope {
+        // The fixtures of the class run on the sandbox of every test
+        METHOD,
+        // The fixtures of the class run once, on a base layer shared by the tests of the class
+        CLASS,
+        // The fixtures run once, on a base layer shared by every class of the run with the same fixtures
+        RUN
+    }
+
+    /**
+     * Where the sandbox lives, by default on disk
+     */
+    Storage storage() default Storage.DISK;
+
+    /**
+     * Base directory of the sandbox when on disk: <code>auto</code>, <code>temp</code> or the path of a directory, see
+     * {@link test.SandboxLocation}.  If empty, the <code>sandbox.base</code> configuration parameter or system
+     * property.  Pooled sandboxes always take their directories from the shared pool, under the default base
+     */
+    String base() default "";
+
+    /**
+     * How often the {@link SandboxFixture} methods of the test class run.  Every test gets a sandbox of its own
+     * anyway: with class or run scope, it starts with copies of the files of a base layer populated only
+     * once, and removed once the class or the run is over
+     */
+    Scope scope() default Scope.METHOD;
+
+    /**
+     * If true, the sandbox is taken from the shared {@link test.SandboxPool} and its directory is given back to the
+     * pool after the test instead of being removed.  Ignored for in-memory sandboxes
+     */
+    boolean pooled() default false;
+
+    /**
+     * If true, the sandbox is moved out of the way after the test and deleted in a background thread, so that the
+     * test does not wait for the deletion of large trees
+     */
+    boolean backgroundCleanup() default false;
+
+    /**
+     * If greater than 1, the test method is run concurrently by as many virtual threads, each one with a sandbox of
+     * its own, and fails if any of them fails.  Only the test method can take a Sandbox then: there is no sandbox
+     * for the test as a whole, so a <code>&#64;BeforeEach</code> or <code>&#64;AfterEach</code> method taking one
+     * fails to resolve it
+     */
+    int threads() default 1;
 }
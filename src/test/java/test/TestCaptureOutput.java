@@ -2,8 +2,15 @@ package test;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestCaptureOutput {
 
@@ -29,4 +36,90 @@ public class TestCaptureOutput {
         assertEquals("135", ctx.out().trim());
         assertEquals("531", ctx.err().trim());
     }
+
+    @Test
+    public void testConcurrentCaptures() throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<ExecutionContext>>();
+            for (var i = 0; i < 50; i++) {
+                final var n = i;
+                futures.add(executor.submit(() -> CaptureOutput.captureOutput(() -> {
+                    for (var j = 0; j < 100; j++) {
+                        System.out.println("out" + n);
+                        System.err.println("err" + n);
+                        Thread.yield();
+                    }
+                    return n;
+                })));
+            }
+            for (var future: futures) {
+                var ctx = future.get();
+                var n = (Integer) ctx.result();
+                assertEquals(("out" + n + System.lineSeparator()).repeat(100), ctx.out());
+                assertEquals(("err" + n + System.lineSeparator()).repeat(100), ctx.err());
+            }
+        }
+    }
+
+    @Test
+    public void testThreadsStartedByTheActionAreCaptured() {
+        var ctx = CaptureOutput.captureOutput(() -> {
+            var thread = Thread.ofVirtual().start(() -> System.out.println("from child"));
+            thread.join();
+        });
+        assertEquals("from child", ctx.out().trim());
+    }
+
+    @Test
+    public void testThreadsOutlivingTheCapture() throws Exception {
+        var latch = new CountDownLatch(1);
+        var thread = new Thread[1];
+        var outer = CaptureOutput.captureOutput(() -> {
+            var inner = CaptureOutput.captureOutputStreaming(() -> {
+                // As a pool worker created during the capture would
+                thread[0] = Thread.ofPlatform().start(() -> {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    System.out.println("late");
+                });
+                System.out.println("inner");
+            }, 1024, null);
+            latch.countDown();
+            thread[0].join();
+            // Written to the capture that was active before the inner one
+            assertEquals("inner", inner.out().toString().trim());
+            inner.close();
+        });
+        assertEquals("late", outer.out().trim());
+    }
+
+    @Test
+    public void testNestedCaptures() {
+        var outer = CaptureOutput.captureOutput(() -> {
+            System.out.println("outer");
+            var inner = CaptureOutput.captureOutput(() -> System.out.println("inner"));
+            assertEquals("inner", inner.out().trim());
+        });
+        assertEquals("outer", outer.out().trim());
+    }
+
+    @Test
+    public void testStreamingCapture() throws Exception {
+        try (var ctx = CaptureOutput.captureOutputStreaming(() -> {
+            for (var i = 0; i < 10_000; i++) System.out.println("line " + i);
+            System.err.println("error");
+            return 42;
+        }, 1024, null)) {
+            assertEquals(42, ctx.result());
+            assertTrue(ctx.out().isSpilled());
+            assertFalse(ctx.err().isSpilled());
+            try (var lines = ctx.out().lines()) {
+                assertEquals("line 9999", lines.skip(9999).findFirst().orElseThrow());
+            }
+            assertEquals("error", ctx.err().toString().trim());
+        }
+    }
 }
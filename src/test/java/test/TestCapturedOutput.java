@@ -0,0 +1,52 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCapturedOutput {
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        try (var output = new CapturedOutput(100, null)) {
+            output.sink().write("line 1\nline 2\n".getBytes());
+            assertFalse(output.isSpilled());
+            assertEquals(14, output.size());
+            try (var lines = output.lines()) {
+                assertEquals(List.of("line 1", "line 2"), lines.toList());
+            }
+            assertEquals("line 1\nline 2\n", output.toString());
+        }
+    }
+
+    @Test
+    public void testSpilled() throws IOException {
+        var directory = Files.createTempDirectory("spill");
+        try (var output = new CapturedOutput(10, directory)) {
+            var sink = output.sink();
+            for (var i = 0; i < 1000; i++) sink.write(("line " + i + "\n").getBytes());
+            assertTrue(output.isSpilled());
+            try (var files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+            try (var lines = output.lines()) {
+                assertEquals(1000, lines.count());
+            }
+            try (var reader = new BufferedReader(output.reader())) {
+                assertEquals("line 0", reader.readLine());
+            }
+            assertEquals(output.size(), output.inputStream().readAllBytes().length);
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(directory);
+    }
+}
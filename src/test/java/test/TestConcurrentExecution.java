@@ -0,0 +1,71 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConcurrentExecution {
+
+    @Test
+    public void testEveryThreadHasItsOwnSandbox() {
+        var ctx = Sandbox.runConcurrently(20, (File directory) -> {
+            assertEquals(0, directory.list().length);
+            Files.writeString(new File(directory, "file").toPath(), directory.getAbsolutePath());
+            System.out.println(directory.getAbsolutePath());
+            return directory;
+        }, true);
+        assertEquals(20, ctx.contexts().size());
+        assertEquals(20, ctx.durations().size());
+        var directories = new HashSet<File>();
+        for (var execution: ctx.contexts()) {
+            var directory = (File) execution.result();
+            assertFalse(directory.exists());
+            assertEquals(directory.getAbsolutePath(), execution.out().trim());
+            directories.add(directory);
+        }
+        assertEquals(20, directories.size());
+        assertTrue(ctx.min().compareTo(ctx.max()) <= 0);
+        assertTrue(ctx.mean().compareTo(ctx.max()) <= 0);
+        assertTrue(ctx.throughput() > 0);
+    }
+
+    @Test
+    public void testInMemory() {
+        var ctx = Sandbox.runConcurrently(
+            8,
+            Sandbox::inMemory,
+            (Sandbox sb) -> Files.readString(sb.copyResourceAsPath("testResource.txt")),
+            false
+        );
+        for (var execution: ctx.contexts()) assertEquals("testResource", execution.result());
+    }
+
+    @Test
+    public void testFailures() {
+        var failure = assertThrows(AssertionFailedError.class, () -> Sandbox.runConcurrently(
+            4,
+            Sandbox::sandbox,
+            (Sandbox sb) -> { throw new IllegalStateException(sb.getRoot().toString()); },
+            false
+        ));
+        assertEquals(3, failure.getSuppressed().length);
+    }
+
+    @Test
+    public void testNoCapture() {
+        var ctx = Sandbox.runConcurrently(2, (File directory) -> System.out.println(directory));
+        for (var execution: ctx.contexts()) {
+            assertNull(execution.result());
+            assertNull(execution.out());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDirectoryRemover {
+
+    // Creates a tree of the given depth, with some files and subdirectories on each level
+    private static void populate(Path directory, int depth) throws IOException {
+        for (var i = 0; i < 5; i++) Files.writeString(directory.resolve("file" + i), "content" + i);
+        if (depth == 0) return;
+        for (var i = 0; i < 3; i++) populate(Files.createDirectory(directory.resolve("dir" + i)), depth - 1);
+    }
+
+    @Test
+    public void testRemoveTree() throws IOException {
+        var root = Files.createTempDirectory("remover");
+        populate(root, 4);
+        DirectoryRemover.remove(root, false);
+        assertFalse(Files.exists(root));
+    }
+
+    @Test
+    public void testRemoveContentsOnly() throws IOException {
+        var root = Files.createTempDirectory("remover");
+        populate(root, 2);
+        DirectoryRemover.remove(root, true);
+        assertTrue(Files.isDirectory(root));
+        try (var contents = Files.list(root)) {
+            assertEquals(0, contents.count());
+        }
+        Files.delete(root);
+    }
+
+    @Test
+    public void testSymbolicLinksAreNotFollowed() throws IOException {
+        var outside = Files.createTempDirectory("outside");
+        Files.writeString(outside.resolve("keep"), "keep");
+        var root = Files.createTempDirectory("remover");
+        Files.createSymbolicLink(root.resolve("link"), outside);
+        DirectoryRemover.remove(root, false);
+        assertFalse(Files.exists(root));
+        assertTrue(Files.exists(outside.resolve("keep")));
+        DirectoryRemover.remove(outside, false);
+    }
+
+    @Test
+    public void testRemoveInBackground() throws Exception {
+        var root = Files.createTempDirectory("remover");
+        populate(root, 3);
+        var future = DirectoryRemover.removeInBackground(root);
+        // The original path is free right away
+        assertFalse(Files.exists(root));
+        future.get();
+        assertFalse(Files.exists(root.resolveSibling(root.getFileName() + ".trash")));
+    }
+}
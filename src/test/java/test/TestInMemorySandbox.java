@@ -0,0 +1,60 @@
+package test;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestInMemorySandbox {
+
+    @Test
+    public void testSandboxIsInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            assertNotEquals(FileSystems.getDefault(), root.getFileSystem());
+            assertTrue(Files.isDirectory(root));
+        });
+        assertFalse(sb.getRoot().getFileSystem().isOpen());
+    }
+
+    @Test
+    public void testNoFileAvailable() {
+        var sb = Sandbox.inMemory();
+        assertThrows(UnsupportedOperationException.class, sb::getSandbox);
+        sb.cleanup();
+    }
+
+    @Test
+    public void testResources() {
+        var sb = Sandbox.inMemory();
+        var ctx = sb.runTestInRoot((Path root) -> {
+            var copied = sb.copyResourceAsPath("/childrenDirectory/otherResource.txt");
+            assertEquals(root.resolve("childrenDirectory"), copied.getParent());
+            assertEquals("otherResource", Files.readString(copied));
+            var created = sb.createResourceAsPath("some/file", "some content", UTF_8);
+            assertEquals("some content", Files.readString(created));
+            System.out.println(created);
+        }, true);
+        assertEquals(sb.getRoot().resolve("some/file").toString(), ctx.out().trim());
+    }
+
+    @Test
+    public void testGivenFileSystemIsNotClosed() throws Exception {
+        try (var fileSystem = Jimfs.newFileSystem(Configuration.unix())) {
+            var sb = Sandbox.sandbox(fileSystem);
+            sb.runTestInRoot((Path root) -> sb.createResourceAsPath("a/b/c", new byte[] { 1, 2, 3 }));
+            assertTrue(fileSystem.isOpen());
+            assertFalse(Files.exists(sb.getRoot()));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestLargeResources {
+
+    private final static long SIZE = 3 * DirectBuffers.SIZE + 5;
+
+    @Test
+    public void testFromInputStream() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var content = new byte[(int) SIZE];
+            Arrays.fill(content, (byte) 7);
+            var file = sb.createResource("from/stream", new ByteArrayInputStream(content));
+            assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+            assertEquals(SIZE, sb.metrics().bytesWritten());
+        });
+    }
+
+    @Test
+    public void testFromChunks() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var chunk = ByteBuffer.allocateDirect(1000);
+            var remaining = new int[] { 5 };
+            var file = sb.createResource("from/chunks", () -> {
+                if (remaining[0]-- == 0) return null;
+                chunk.clear();
+                while (chunk.hasRemaining()) chunk.put((byte) remaining[0]);
+                return chunk.flip();
+            });
+            var content = Files.readAllBytes(file.toPath());
+            assertEquals(5000, content.length);
+            assertEquals(4, content[0]);
+            assertEquals(0, content[4999]);
+        });
+    }
+
+    @Test
+    public void testSparse() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var file = sb.createResource("sparse", SyntheticContent.sparse(SIZE)).toPath();
+            assertEquals(SIZE, Files.size(file));
+            try (InputStream is = Files.newInputStream(file)) {
+                var content = is.readAllBytes();
+                for (var b: content) assertEquals(0, b);
+            }
+            sb.createResource("empty", SyntheticContent.sparse(0));
+            assertEquals(0, Files.size(dir.toPath().resolve("empty")));
+        });
+    }
+
+    @Test
+    public void testRandomIsDeterministic() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var first = sb.createResource("first", SyntheticContent.random(SIZE, 42)).toPath();
+            var second = sb.createResource("second", SyntheticContent.random(SIZE, 42)).toPath();
+            var other = sb.createResource("other", SyntheticContent.random(SIZE, 43)).toPath();
+            assertEquals(SIZE, Files.size(first));
+            assertEquals(-1, TreeDiff.mismatch(first, second));
+            assertNotEquals(-1, TreeDiff.mismatch(first, other));
+            // Not just zeros
+            var zeros = sb.createResource("zeros", SyntheticContent.sparse(SIZE)).toPath();
+            assertTrue(TreeDiff.mismatch(first, zeros) < 8);
+        });
+    }
+
+    @Test
+    public void testRepeating() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            var file = sb.createResourceAsPath("repeating", SyntheticContent.repeating(SIZE, "abc".getBytes()));
+            var content = Files.readAllBytes(file);
+            assertEquals(SIZE, content.length);
+            for (var i = 0; i < content.length; i++) assertEquals("abc".charAt(i % 3), content[i]);
+            var large = new byte[DirectBuffers.SIZE + 1];
+            large[DirectBuffers.SIZE] = 1;
+            var longPattern = sb.createResourceAsPath("long", SyntheticContent.repeating(2L * large.length, large));
+            var longContent = Files.readAllBytes(longPattern);
+            assertEquals(1, longContent[DirectBuffers.SIZE]);
+            assertEquals(1, longContent[2 * DirectBuffers.SIZE + 1]);
+        });
+    }
+}
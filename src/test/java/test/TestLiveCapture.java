@@ -0,0 +1,108 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static test.LiveCapture.Channel.ERR;
+import static test.LiveCapture.Channel.OUT;
+
+public class TestLiveCapture {
+
+    @Test
+    public void testListenersReceiveEveryLine() {
+        var out = new CopyOnWriteArrayList<String>();
+        var err = new CopyOnWriteArrayList<String>();
+        var ctx = new LiveCapture().onLine(OUT, out::add).onLine(ERR, err::add).run(() -> {
+            System.out.println("first");
+            System.out.print("sec");
+            System.out.print("ond\r\nthird");
+            System.err.println("error");
+            return 42;
+        });
+        assertEquals(42, ctx.result());
+        assertEquals(List.of("first", "second", "third"), out);
+        assertEquals(List.of("error"), err);
+        assertEquals("error", ctx.err().trim());
+    }
+
+    @Test
+    public void testFailFast() {
+        var start = System.nanoTime();
+        var error = assertThrows(AssertionFailedError.class, () -> new LiveCapture()
+            .failOn(ERR, Pattern.compile("FATAL"))
+            .run(() -> {
+                System.err.println("FATAL: something went wrong");
+                Thread.sleep(60_000);
+                return null;
+            }));
+        assertTrue(error.getMessage().contains("FATAL: something went wrong"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testAwaitLine() throws Exception {
+        var capture = new LiveCapture();
+        var release = new CountDownLatch(1);
+        var future = capture.start(() -> {
+            System.out.println("starting");
+            System.out.println("Started in 12 ms");
+            release.await();
+            System.out.println("stopping");
+            return null;
+        });
+        var started = capture.awaitLine(OUT, Pattern.compile("Started in \\d+"), Duration.ofSeconds(30));
+        assertEquals("Started in 12 ms", started);
+        release.countDown();
+        assertEquals("starting", capture.awaitLine(OUT, Pattern.compile("^start"), Duration.ofSeconds(30)));
+        future.get();
+        assertThrows(
+            AssertionFailedError.class,
+            () -> capture.awaitLine(ERR, Pattern.compile("."), Duration.ofSeconds(30))
+        );
+    }
+
+    @Test
+    public void testAwaitLineTimeout() throws Exception {
+        var capture = new LiveCapture();
+        var release = new CountDownLatch(1);
+        var future = capture.start(() -> { release.await(); return null; });
+        assertThrows(
+            AssertionFailedError.class,
+            () -> capture.awaitLine(OUT, Pattern.compile("."), Duration.ofMillis(50))
+        );
+        release.countDown();
+        future.get();
+    }
+
+    @Test
+    public void testListenerFailureWithStart() {
+        var capture = new LiveCapture().onLine(OUT, line -> { throw new IllegalStateException(line); });
+        var error = assertThrows(ExecutionException.class, () -> capture.start(() -> {
+            System.out.println("boom");
+            return null;
+        }).get());
+        assertInstanceOf(AssertionFailedError.class, error.getCause());
+        assertInstanceOf(IllegalStateException.class, error.getCause().getCause());
+    }
+
+    @Test
+    public void testOnlyOnce() {
+        var capture = new LiveCapture();
+        capture.run(() -> null);
+        assertThrows(IllegalStateException.class, () -> capture.run(() -> null));
+    }
+}
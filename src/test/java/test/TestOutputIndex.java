@@ -0,0 +1,148 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestOutputIndex {
+
+    private final static String LOG = """
+        INFO Starting server
+        WARN Slow disk
+        INFO Connected to db1\r
+        WARN Slow disk
+        ERROR Lost connection
+        INFO Stopped
+        """;
+
+    @Test
+    public void testQueries() {
+        var index = OutputIndex.of(LOG);
+        assertEquals(6, index.lineCount());
+        assertEquals("INFO Connected to db1", index.line(2));
+        assertTrue(index.containsLine("WARN Slow disk"));
+        assertTrue(index.containsLine("INFO Connected to db1"));
+        assertFalse(index.containsLine("WARN Slow"));
+        assertEquals(2, index.countMatches("Slow disk"));
+        assertEquals(3, index.countMatches("INFO"));
+        assertEquals(4, index.countMatches("O"));
+        assertEquals(0, index.countMatches("FATAL"));
+        assertEquals(List.of("INFO Connected to db1", "ERROR Lost connection"), index.linesMatching("[Cc]onnect"));
+        assertEquals(List.of("INFO Connected to db1"), index.linesMatching("to db\\d+$"));
+        assertEquals(List.of("ERROR Lost connection", "INFO Stopped"), index.linesMatching("ERROR|Stopped"));
+    }
+
+    @Test
+    public void testInOrder() {
+        var index = OutputIndex.of(LOG);
+        assertTrue(index.containsInOrder("Starting", "Slow disk", "Slow disk", "Stopped"));
+        assertFalse(index.containsInOrder("Slow disk", "Slow disk", "Slow disk"));
+        assertFalse(index.containsInOrder("Stopped", "Starting"));
+        index.assertContainsInOrder("Starting", "Connected", "Stopped");
+        var e = assertThrows(AssertionFailedError.class, () -> index.assertContainsInOrder("Lost", "Connected"));
+        assertEquals("Output does not contain \"Connected\" after a line containing \"Lost\"", e.getMessage());
+        e = assertThrows(AssertionFailedError.class, () -> index.assertContainsInOrder("Restarting"));
+        assertEquals("Output does not contain \"Restarting\"", e.getMessage());
+    }
+
+    @Test
+    public void testSpilledWhileWriting() throws IOException {
+        var directory = Files.createTempDirectory("spill");
+        try (var output = new CapturedOutput(64, directory, true)) {
+            var sink = output.sink();
+            for (var i = 0; i < 1000; i++) sink.write(("line " + i + "\n").getBytes());
+            sink.write("unterminated".getBytes());
+            assertTrue(output.isSpilled());
+            var index = output.index();
+            assertEquals(1001, index.lineCount());
+            assertEquals("line 999", index.line(999));
+            assertTrue(index.containsLine("line 500"));
+            assertTrue(index.containsLine("unterminated"));
+            assertEquals(111, index.countMatches("line 9"));
+            assertEquals(List.of("line 99", "line 999"), index.linesMatching("^line 99+$"));
+            assertTrue(index.containsInOrder("line 10", "line 2", "unterminated"));
+            sink.write(" no more\n".getBytes());
+            assertTrue(index.containsLine("unterminated no more"));
+            assertFalse(index.containsLine("unterminated"));
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void testManyLines() {
+        var output = new StringBuilder();
+        for (var i = 0; i < 100000; i++) {
+            output.append("event ").append(i);
+            if (i == 3 || i == 200 || i == 99999) output.append(" needle");
+            output.append('\n');
+        }
+        var index = OutputIndex.of(output.toString());
+        assertEquals(100000, index.lineCount());
+        assertEquals(
+            List.of("event 3 needle", "event 200 needle", "event 99999 needle"),
+            index.linesMatching("needle$")
+        );
+        assertEquals(1, index.countMatches("event 12345"));
+        assertEquals(11, index.countMatches("event 5432"));
+        assertTrue(index.containsLine("event 76543"));
+        assertTrue(index.containsInOrder("needle", "event 50000", "needle"));
+    }
+
+    @Test
+    public void testCaptureIndexed() throws IOException {
+        var sb = Sandbox.sandbox();
+        try (var ctx = sb.captureOutput((File dir) -> {
+            System.out.println("Starting");
+            System.err.println("Failed");
+            System.out.println("Stopped");
+            return null;
+        }, 1 << 20, true)) {
+            ctx.out().index().assertContainsInOrder("Starting", "Stopped");
+            assertTrue(ctx.err().index().containsLine("Failed"));
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testNotIndexed() throws IOException {
+        try (var output = new CapturedOutput(64, null)) {
+            assertThrows(IllegalStateException.class, output::index);
+        }
+    }
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("Connected to ", OutputIndex.requiredLiteral("^Connected to \\w+"));
+        assertEquals("disk", OutputIndex.requiredLiteral("(Slow )?disk"));
+        assertEquals("timeout=", OutputIndex.requiredLiteral("timeout=\\d+ms"));
+        assertEquals("abc", OutputIndex.requiredLiteral("ab*abc"));
+        assertEquals("", OutputIndex.requiredLiteral("WARN|ERROR"));
+        assertEquals("", OutputIndex.requiredLiteral("(?i)warn"));
+        assertEquals("", OutputIndex.requiredLiteral("[a-z]+"));
+        assertEquals("", OutputIndex.requiredLiteral("\\d{1,3}\\.\\d{1,3}"));
+        assertEquals("", OutputIndex.requiredLiteral("[0-9]{2,4}"));
+        assertEquals("", OutputIndex.requiredLiteral("\\p{Alpha}+"));
+        assertEquals("", OutputIndex.requiredLiteral("a{100}"));
+        assertEquals("port ", OutputIndex.requiredLiteral("port \\d{2,5}"));
+        assertEquals("ms", OutputIndex.requiredLiteral("\\x{263A}ms"));
+    }
+
+    @Test
+    public void testQuantifierBounds() {
+        var index = OutputIndex.of("Listening on 192.168.0.1\nWaiting\nport 8080\n");
+        assertEquals(List.of("Listening on 192.168.0.1"), index.linesMatching("\\d{1,3}\\.\\d{1,3}"));
+        assertEquals(List.of("port 8080"), index.linesMatching("[0-9]{2,4}$"));
+        assertEquals(List.of("Waiting"), index.linesMatching("^\\p{Alpha}+$"));
+    }
+}
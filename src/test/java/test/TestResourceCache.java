@@ -0,0 +1,104 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static test.Sandbox.sandbox;
+
+public class TestResourceCache {
+
+    @Test
+    public void testResourceIsReadOnlyOnce() {
+        var cache = new ResourceCache(1024);
+        sandbox().runTest((File directory) -> {
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("first")));
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("second")));
+            assertEquals("testResource", Files.readString(directory.toPath().resolve("second")));
+            // The copies are independent and writable
+            Files.writeString(directory.toPath().resolve("first"), "changed");
+            assertEquals("testResource", Files.readString(directory.toPath().resolve("second")));
+        });
+        assertEquals(new ResourceCache.Statistics(1, 1, 1, "testResource".length()), cache.statistics());
+        cache.clear();
+    }
+
+    @Test
+    public void testLinksAreReadOnly() {
+        var cache = new ResourceCache(1024);
+        sandbox().runTest((File directory) -> {
+            var first = directory.toPath().resolve("first");
+            var second = directory.toPath().resolve("second");
+            assertTrue(cache.linkTo("/testResource.txt", first));
+            assertTrue(cache.linkTo("/testResource.txt", second));
+            assertTrue(Files.isSameFile(first, second) || Files.mismatch(first, second) == -1);
+            assertFalse(Files.getPosixFilePermissions(first).contains(OWNER_WRITE));
+            assertEquals("testResource", Files.readString(second));
+        });
+        cache.clear();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        // Room for only one of the resources
+        var cache = new ResourceCache("otherResource".length());
+        sandbox().runTest((File directory) -> {
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("1")));
+            assertTrue(cache.copyTo("/childrenDirectory/otherResource.txt", directory.toPath().resolve("2")));
+            assertEquals(1, cache.statistics().entries());
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("3")));
+            assertEquals("testResource", Files.readString(directory.toPath().resolve("3")));
+        });
+        assertEquals(0, cache.statistics().hits());
+        assertEquals(3, cache.statistics().misses());
+        cache.clear();
+    }
+
+    @Test
+    public void testTooLargeResourcesAreNotCached() {
+        var cache = new ResourceCache(4);
+        sandbox().runTest((File directory) -> {
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("1")));
+            assertEquals("testResource", Files.readString(directory.toPath().resolve("1")));
+            // Straight from the classpath again, without trying to cache it
+            assertTrue(cache.copyTo("/testResource.txt", directory.toPath().resolve("2")));
+            assertEquals("testResource", Files.readString(directory.toPath().resolve("2")));
+        });
+        assertEquals(new ResourceCache.Statistics(0, 2, 0, 0), cache.statistics());
+        cache.clear();
+    }
+
+    @Test
+    public void testMissingResource() {
+        var cache = new ResourceCache(1024);
+        sandbox().runTest((File directory) -> {
+            assertFalse(cache.copyTo("/doesNotExist.txt", directory.toPath().resolve("1")));
+            assertFalse(Files.exists(directory.toPath().resolve("1")));
+        });
+        assertEquals(0, cache.statistics().entries());
+    }
+
+    @Test
+    public void testLinkIntoMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            var resource = sb.linkResourceAsPath("/testResource.txt");
+            assertEquals("testResource", Files.readString(resource));
+        });
+    }
+
+    @Test
+    public void testSmallerInMemory() throws Exception {
+        var ram = Path.of("/dev/shm");
+        assumeTrue(Files.isDirectory(ram) && Files.getFileStore(ram).type().equals("tmpfs"));
+        assertTrue(ResourceCache.defaultMaxBytes(ram) <= 128L << 20);
+        assertTrue(ResourceCache.defaultMaxBytes(ram.resolve("not/created/yet")) <= 128L << 20);
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static test.Sandbox.sandbox;
+
+public class TestResourceTree {
+
+    @Test
+    public void testExplodedDirectory() throws Exception {
+        try (var tree = ResourceTree.open(getClass().getClassLoader(), "/tree/")) {
+            assertEquals(
+                List.of("a.txt", "other/d.txt", "sub/b.txt", "sub/deeper/c.txt"),
+                List.copyOf(tree.files().keySet())
+            );
+            assertEquals(List.of("other", "sub", "sub/deeper"), List.copyOf(tree.directories()));
+        }
+    }
+
+    @Test
+    public void testMissingDirectory() throws Exception {
+        assertNull(ResourceTree.open(getClass().getClassLoader(), "doesNotExist"));
+    }
+
+    @Test
+    public void testJarFile() {
+        var sb = sandbox();
+        sb.runTest((File directory) -> {
+            var jar = new File(directory, "resources.jar");
+            try (var jos = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+                jos.putNextEntry(new JarEntry("fixtures/"));
+                for (var name: List.of("fixtures/one.txt", "fixtures/nested/two.txt", "unrelated.txt")) {
+                    jos.putNextEntry(new JarEntry(name));
+                    jos.write(name.getBytes(UTF_8));
+                }
+            }
+            try (
+                var classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+                var tree = ResourceTree.open(classLoader, "fixtures")
+            ) {
+                assertEquals(List.of("nested/two.txt", "one.txt"), List.copyOf(tree.files().keySet()));
+                tree.copyTo(directory.toPath().resolve("copied"));
+            }
+            assertEquals("fixtures/one.txt", Files.readString(directory.toPath().resolve("copied/one.txt")));
+            assertEquals(
+                "fixtures/nested/two.txt",
+                Files.readString(directory.toPath().resolve("copied/nested/two.txt"))
+            );
+        });
+    }
+}
@@ -4,8 +4,11 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
 
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static test.Sandbox.sandbox;
 
@@ -59,4 +62,39 @@ public class TestResources {
             assertEquals("testResource", Files.readString(resource2.toPath()));
         });
     }
+
+    @Test
+    public void testLinkResource() {
+        var sb = sandbox();
+        sb.runTest((File sandbox) -> {
+            var resource = sb.linkResource("/childrenDirectory/otherResource.txt", "linked/resource.txt");
+            assertEquals(new File(sandbox, "linked"), resource.getParentFile());
+            assertEquals("otherResource", Files.readString(resource.toPath()));
+            assertFalse(Files.getPosixFilePermissions(resource.toPath()).contains(OWNER_WRITE));
+        });
+    }
+
+    @Test
+    public void testCopyResourceTree() {
+        var sb = sandbox();
+        sb.runTest((File sandbox) -> {
+            var tree = sb.copyResourceTree("/tree");
+            assertEquals(new File(sandbox, "tree"), tree);
+            assertEquals("a", Files.readString(new File(tree, "a.txt").toPath()));
+            assertEquals("c", Files.readString(new File(tree, "sub/deeper/c.txt").toPath()));
+            var other = sb.copyResourceTree("tree/sub", "elsewhere");
+            assertEquals("b", Files.readString(new File(other, "b.txt").toPath()));
+            assertEquals("c", Files.readString(new File(other, "deeper/c.txt").toPath()));
+        });
+    }
+
+    @Test
+    public void testCopyResourceTreeInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            var tree = sb.copyResourceTreeAsPath("tree/");
+            assertEquals(root.resolve("tree"), tree);
+            assertEquals("d", Files.readString(tree.resolve("other/d.txt")));
+        });
+    }
 }
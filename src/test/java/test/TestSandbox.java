@@ -13,6 +13,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class TestSandbox {
@@ -141,4 +142,33 @@ public class TestSandbox {
             }
         );
     }
+
+    @Test
+    public void testCleanupInBackground() throws Exception {
+        var sandbox = Sandbox.sandbox();
+        for (var i = 0; i < 100; i++) sandbox.createResource("dir" + (i % 10) + "/file" + i, new byte[] { (byte) i });
+        var future = sandbox.cleanupInBackground();
+        assertFalse(sandbox.sandbox.exists());
+        future.get();
+    }
+
+    @Test
+    public void testCaptureOutputSpillsNextToTheSandbox() throws Exception {
+        var sandbox = Sandbox.sandbox();
+        var ctx = sandbox.captureOutput((File directory) -> {
+            for (var i = 0; i < 1000; i++) System.out.println(directory.getAbsolutePath());
+            return null;
+        }, 100);
+        assertTrue(ctx.out().isSpilled());
+        // Nothing was written inside the sandbox
+        assertEquals(0, sandbox.sandbox.list().length);
+        try (var lines = ctx.out().lines()) {
+            assertTrue(lines.allMatch(sandbox.sandbox.getAbsolutePath()::equals));
+        }
+        var spillDirectory = new File(sandbox.sandbox.getAbsolutePath() + ".capture");
+        assertTrue(spillDirectory.isDirectory());
+        sandbox.cleanup();
+        assertFalse(spillDirectory.exists());
+        assertFalse(sandbox.sandbox.exists());
+    }
 }
@@ -0,0 +1,72 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestSandboxBatch {
+
+    @Test
+    public void testCommit() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var batch = sb.batch();
+            for (var i = 0; i < 100; i++) batch.file("dir" + i % 3 + "/sub" + i % 2 + "/file" + i, "content" + i, UTF_8);
+            var files = batch.commit();
+            assertEquals(100, files.size());
+            for (var i = 0; i < 100; i++) {
+                assertEquals(new File(dir, "dir" + i % 3 + "/sub" + i % 2 + "/file" + i), files.get(i));
+                assertEquals("content" + i, Files.readString(files.get(i).toPath()));
+            }
+            assertEquals(100, sb.metrics().filesWritten());
+            assertEquals(890, sb.metrics().bytesWritten());
+        });
+    }
+
+    @Test
+    public void testLargeAndSynthetic() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var content = new byte[2 * DirectBuffers.SIZE + 3];
+            Arrays.fill(content, (byte) 5);
+            var files = sb.batch()
+                .file("large", content)
+                .file("deep/er/sparse", SyntheticContent.sparse(10))
+                .file("empty", new byte[0])
+                .commit();
+            assertArrayEquals(content, Files.readAllBytes(files.get(0).toPath()));
+            assertArrayEquals(new byte[10], Files.readAllBytes(files.get(1).toPath()));
+            assertEquals(0, files.get(2).length());
+        });
+    }
+
+    @Test
+    public void testInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            var paths = sb.batch().file("a/b", new byte[] { 1 }).file("a/c", new byte[] { 2 }).commitAsPath();
+            assertEquals(root.resolve("a/c"), paths.get(1));
+            assertArrayEquals(new byte[] { 2 }, Files.readAllBytes(paths.get(1)));
+        });
+    }
+
+    @Test
+    public void testExistingFile() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            sb.createResource("dir/taken", new byte[0]);
+            var batch = sb.batch().file("dir/free", new byte[0]).file("dir/taken", new byte[0]);
+            assertThrows(AssertionFailedError.class, batch::commit);
+            assertThrows(IllegalStateException.class, batch::commit);
+        });
+    }
+}
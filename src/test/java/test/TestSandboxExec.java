@@ -0,0 +1,87 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.opentest4j.AssertionFailedError;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledOnOs(OS.WINDOWS)
+public class TestSandboxExec {
+
+    @Test
+    public void testExitCodeAndOutput() {
+        var sb = Sandbox.sandbox();
+        try {
+            var ctx = sb.exec(List.of("sh", "-c", "echo out; echo err >&2; exit 3"));
+            assertEquals(3, ctx.result());
+            assertEquals("out\n", ctx.out());
+            assertEquals("err\n", ctx.err());
+            assertEquals(8, sb.metrics().capturedBytes());
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testWorkingDirectory() throws Exception {
+        var sb = Sandbox.sandbox();
+        try {
+            sb.createResource("input", "content".getBytes());
+            var ctx = sb.exec(List.of("sh", "-c", "cat input > output"), Duration.ofSeconds(30));
+            assertEquals(0, ctx.result());
+            assertEquals("content", Files.readString(sb.getRoot().resolve("output")));
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testLargeOutputs() throws Exception {
+        var sb = Sandbox.sandbox();
+        // Way beyond the capacity of a pipe, on both outputs at the same time
+        var command = List.of("sh", "-c", "head -c 3000000 /dev/zero; head -c 3000000 /dev/zero >&2");
+        try (var ctx = sb.execStreaming(command, Duration.ofSeconds(30), 1024)) {
+            assertEquals(0, ctx.result());
+            assertEquals(3000000, ctx.out().size());
+            assertEquals(3000000, ctx.err().size());
+            assertTrue(ctx.out().isSpilled());
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        var sb = Sandbox.sandbox();
+        try {
+            var start = System.nanoTime();
+            var e = assertThrows(
+                AssertionFailedError.class,
+                () -> sb.exec(List.of("sh", "-c", "sleep 30 & sleep 30"), Duration.ofMillis(200))
+            );
+            assertTrue(e.getMessage().startsWith("Timed out"), e.getMessage());
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(10)) < 0);
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        var ctx = Sandbox.runConcurrently(
+            8,
+            Sandbox::sandbox,
+            (Sandbox sb) -> sb.exec(List.of("sh", "-c", "echo hello"), Duration.ofSeconds(30)).out(),
+            false
+        );
+        for (var each: ctx.contexts()) assertEquals("hello\n", each.result());
+    }
+}
@@ -0,0 +1,102 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxJournal {
+
+    @Test
+    public void testRunTest() {
+        var sb = Sandbox.sandbox().trackChanges();
+        sb.createResource("existing", "content".getBytes());
+        sb.createResource("untouched/file", "content".getBytes());
+        sb.createResource("gone", "content".getBytes());
+        var ctx = sb.runTest((File dir) -> {
+            Files.writeString(dir.toPath().resolve("existing"), "changed");
+            Files.writeString(dir.toPath().resolve("existing"), "changed again");
+            Files.delete(dir.toPath().resolve("gone"));
+            Files.createDirectories(dir.toPath().resolve("new/deep"));
+            Files.writeString(dir.toPath().resolve("new/deep/file"), "content");
+            Files.writeString(dir.toPath().resolve("new/deep/file"), "more");
+            // Temporary files do not count
+            Files.writeString(dir.toPath().resolve("new/tmp"), "content");
+            Files.delete(dir.toPath().resolve("new/tmp"));
+        });
+        var changes = ctx.changes();
+        assertTrue(changes.complete());
+        assertEquals(Set.of("new", "new/deep", "new/deep/file"), changes.created());
+        assertEquals(Set.of("existing"), changes.modified());
+        assertEquals(Set.of("gone"), changes.deleted());
+        assertEquals(
+            List.of(
+                new ChangeLog.Change(ChangeLog.Kind.DELETED, "gone"),
+                new ChangeLog.Change(ChangeLog.Kind.MODIFIED, "existing"),
+                new ChangeLog.Change(ChangeLog.Kind.CREATED, "new"),
+                new ChangeLog.Change(ChangeLog.Kind.CREATED, "new/deep"),
+                new ChangeLog.Change(ChangeLog.Kind.CREATED, "new/deep/file")
+            ),
+            changes.changes()
+        );
+        assertEquals(Set.of("new/deep", "new/deep/file"), changes.under("new/deep").created());
+        assertTrue(changes.under("untouched").isEmpty());
+    }
+
+    @Test
+    public void testNotTracking() {
+        var ctx = Sandbox.sandbox().runTest((File dir) -> { new File(dir, "file").createNewFile(); });
+        assertNull(ctx.changes());
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+        var sb = Sandbox.sandbox();
+        var existing = sb.createResourceAsPath("existing", new byte[] { 1 });
+        try (var journal = sb.journal()) {
+            assertTrue(journal.changes().isEmpty());
+            var file = sb.createResourceAsPath("a/b", new byte[] { 1 });
+            assertTrue(journal.changes().wasCreated("a/b"));
+            Files.delete(file);
+            Files.delete(file.getParent());
+            assertTrue(journal.changes().isEmpty());
+            // Replaced, which is a modification
+            Files.delete(existing);
+            Files.write(existing, new byte[] { 2 });
+            var changes = journal.changes().changes();
+            assertEquals(List.of(new ChangeLog.Change(ChangeLog.Kind.MODIFIED, "existing")), changes);
+            Files.delete(existing);
+            assertEquals(Set.of("existing"), journal.changes().deleted());
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testPolling() {
+        var sb = Sandbox.inMemory().trackChanges();
+        sb.createResourceAsPath("existing", "content".getBytes());
+        sb.createResourceAsPath("gone", "content".getBytes());
+        var ctx = sb.runTestInRoot((Path root) -> {
+            Files.writeString(root.resolve("existing"), "changed");
+            Files.delete(root.resolve("gone"));
+            Files.createDirectories(root.resolve("new"));
+            Files.writeString(root.resolve("new/file"), "content");
+            Files.writeString(root.resolve("new/tmp"), "content");
+            Files.delete(root.resolve("new/tmp"));
+        });
+        var changes = ctx.changes();
+        assertEquals(Set.of("new", "new/file"), changes.created());
+        assertEquals(Set.of("existing"), changes.modified());
+        assertEquals(Set.of("gone"), changes.deleted());
+        assertFalse(changes.wasModified("new/file"));
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxLayer {
+
+    @Test
+    public void testPopulate() throws Exception {
+        var base = Sandbox.sandbox();
+        base.copyResourceTree("tree");
+        base.createResource("top.txt", "top", UTF_8);
+        try (var layer = base.freeze()) {
+            assertEquals(5, layer.files());
+            assertEquals(7, layer.bytes());
+            var baseFile = base.getRoot().resolve("tree/sub/deeper/c.txt");
+            assertFalse(Files.getPosixFilePermissions(baseFile).contains(PosixFilePermission.OWNER_WRITE));
+            for (var i = 0; i < 2; i++) {
+                var sb = layer.populate(Sandbox.sandbox());
+                sb.runTestInRoot((Path root) -> {
+                    var file = root.resolve("tree/sub/deeper/c.txt");
+                    assertEquals("c", Files.readString(file));
+                    assertFalse(Files.isSameFile(baseFile, file));
+                    assertEquals("top", Files.readString(root.resolve("top.txt")));
+                    // Replacing a file of the layer leaves the base alone
+                    Files.delete(file);
+                    Files.writeString(file, "changed");
+                    // And so does writing in place, whoever the user is
+                    Files.writeString(root.resolve("top.txt"), "overwritten", StandardOpenOption.APPEND);
+                    assertEquals("topoverwritten", Files.readString(root.resolve("top.txt")));
+                });
+                assertEquals(5, sb.metrics().filesWritten());
+                assertEquals("c", Files.readString(baseFile));
+                assertEquals("top", Files.readString(base.getRoot().resolve("top.txt")));
+            }
+        }
+        assertFalse(Files.exists(base.getRoot()));
+    }
+
+    @Test
+    public void testPopulateInMemory() throws Exception {
+        var base = Sandbox.sandbox();
+        base.copyResourceTree("tree");
+        try (var layer = base.freeze()) {
+            var sb = layer.populate(Sandbox.inMemory());
+            sb.runTestInRoot((Path root) -> {
+                assertEquals("b", Files.readString(root.resolve("tree/sub/b.txt")));
+                assertEquals("d", Files.readString(root.resolve("tree/other/d.txt")));
+                assertTrue(Files.isDirectory(root.resolve("tree/sub/deeper")));
+            });
+        }
+    }
+}
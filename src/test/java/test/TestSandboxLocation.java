@@ -0,0 +1,62 @@
+package test;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxLocation {
+
+    @Test
+    public void testBaseDirectory() {
+        var temp = Path.of(System.getProperty("java.io.tmpdir"));
+        assertEquals(temp, SandboxLocation.baseDirectory(SandboxLocation.TEMP));
+        assertEquals(Path.of("/some/where"), SandboxLocation.baseDirectory("/some/where"));
+        var auto = SandboxLocation.baseDirectory(SandboxLocation.AUTO);
+        assertTrue(auto.equals(temp) || auto.equals(SandboxLocation.RAM_DIRECTORY));
+        assertEquals(auto, SandboxLocation.baseDirectory());
+    }
+
+    @Test
+    public void testSandboxUnderBase() {
+        var outer = Sandbox.sandbox();
+        try {
+            var base = outer.getRoot().resolve("not/yet");
+            var sb = Sandbox.sandbox(base);
+            assertEquals(base, sb.getRoot().getParent());
+            sb.createResource("file", new byte[] { 1 });
+            sb.cleanup();
+            assertFalse(Files.exists(sb.getRoot()));
+        } finally {
+            outer.cleanup();
+        }
+    }
+
+    @Test
+    public void testNotEnoughSpace() throws Exception {
+        var configuration = Configuration.unix().toBuilder().setMaxSize(SandboxLocation.SPACE_CHECK_THRESHOLD).build();
+        try (var fileSystem = Jimfs.newFileSystem(configuration)) {
+            var sb = Sandbox.sandbox(fileSystem);
+            var size = 2 * SandboxLocation.SPACE_CHECK_THRESHOLD;
+            var e = assertThrows(
+                AssertionFailedError.class,
+                () -> sb.createResourceAsPath("large", SyntheticContent.random(size, 1))
+            );
+            assertTrue(e.getCause().getMessage().contains("Not enough space"), e.getCause().getMessage());
+            assertFalse(Files.exists(sb.getRoot().resolve("large")));
+            var batch = sb.batch().file("in/batch", new byte[(int) size]);
+            assertThrows(AssertionFailedError.class, batch::commitAsPath);
+            // Small files are written without checking
+            sb.createResourceAsPath("small", new byte[10]);
+            sb.cleanup();
+        }
+    }
+}
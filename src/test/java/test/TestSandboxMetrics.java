@@ -0,0 +1,110 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxMetrics {
+
+    @Test
+    public void testWritesAndCleanup() {
+        var sb = Sandbox.sandbox();
+        var resourceSize = new File(getClass().getResource("/testResource.txt").getFile()).length();
+        var ctx = sb.runTest((File dir) -> {
+            sb.createResource("some/file", "content".getBytes());
+            sb.copyResource("/testResource.txt");
+            sb.copyResourceTree("tree");
+            // Not written through the sandbox, only seen at cleanup
+            Files.write(dir.toPath().resolve("other"), new byte[10]);
+        });
+        var metrics = ctx.metrics();
+        assertSame(sb.metrics(), metrics);
+        assertEquals(6, metrics.filesWritten());
+        assertEquals(7 + resourceSize + 4, metrics.bytesWritten());
+        assertEquals(7, metrics.treeFiles());
+        assertEquals(7 + resourceSize + 4 + 10, metrics.treeBytes());
+        assertEquals(0, metrics.capturedBytes());
+        assertNotNull(metrics.creationTime());
+        assertNotNull(metrics.cleanupTime());
+        assertTrue(metrics.lifetime().compareTo(metrics.cleanupTime()) >= 0);
+    }
+
+    @Test
+    public void testCapturedOutput() {
+        var sb = Sandbox.sandbox();
+        var ctx = sb.runTest((File dir) -> {
+            System.out.print("12345");
+            System.err.print("123");
+        }, true);
+        assertEquals(8, ctx.metrics().capturedBytes());
+    }
+
+    @Test
+    public void testStreamingCapturedOutput() throws Exception {
+        var sb = Sandbox.sandbox();
+        try (var ctx = sb.captureOutput((File dir) -> { System.out.print("12345"); return null; }, 2)) {
+            assertEquals(5, sb.metrics().capturedBytes());
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testBeforeCleanup() {
+        var sb = Sandbox.sandbox();
+        sb.createResource("file", new byte[3]);
+        var metrics = sb.metrics();
+        assertEquals(1, metrics.filesWritten());
+        assertEquals(-1, metrics.treeBytes());
+        assertNull(metrics.cleanupTime());
+        assertTrue(metrics.toReportEntry().containsKey("sandbox.bytesWritten"));
+        assertTrue(!metrics.toReportEntry().containsKey("sandbox.treeBytes"));
+        assertFalse(metrics.cleanedUp().isDone());
+        sb.cleanup();
+        assertTrue(metrics.cleanedUp().isDone());
+        assertEquals("1", sb.metrics().toReportEntry().get("sandbox.treeFiles"));
+    }
+
+    @Test
+    public void testInMemory() {
+        var sb = Sandbox.inMemory();
+        var ctx = sb.runTestInRoot((Path root) -> sb.createResourceAsPath("a/b", new byte[5]));
+        assertEquals(1, ctx.metrics().treeFiles());
+        assertEquals(5, ctx.metrics().treeBytes());
+    }
+
+    @Test
+    public void testBackgroundCleanup() throws Exception {
+        var sb = Sandbox.sandbox();
+        sb.createResource("a/b", new byte[5]);
+        sb.cleanupInBackground().get(10, TimeUnit.SECONDS);
+        assertNotNull(sb.metrics().cleanupTime());
+        assertTrue(sb.metrics().cleanedUp().isDone());
+        assertEquals(5, sb.metrics().treeBytes());
+    }
+
+    @Test
+    public void testPooled() throws Exception {
+        try (var pool = new SandboxPool(1)) {
+            var sb = pool.sandbox();
+            sb.createResource("a/b", new byte[5]);
+            sb.cleanup();
+            // Emptied in the background, pending until then
+            var reported = sb.metrics().toReportEntry().get("sandbox.treeBytes");
+            assertTrue(reported.equals(SandboxMetrics.PENDING) || reported.equals("5"), reported);
+            assertSame(sb.metrics(), sb.metrics().cleanedUp().get(10, TimeUnit.SECONDS));
+            assertEquals(5, sb.metrics().treeBytes());
+            assertEquals("5", sb.metrics().toReportEntry().get("sandbox.treeBytes"));
+        }
+    }
+}
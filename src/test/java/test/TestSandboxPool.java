@@ -0,0 +1,93 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxPool {
+
+    // Waits for the background thread to empty every returned directory
+    private static void awaitRecycling(SandboxPool pool) throws InterruptedException {
+        while (pool.statistics().backlog() > 0) Thread.sleep(5);
+    }
+
+    // Waits for the pool to be pre-warmed
+    private static void awaitIdle(SandboxPool pool, int idle) throws InterruptedException {
+        while (pool.statistics().idle() < idle) Thread.sleep(5);
+    }
+
+    @Test
+    public void testDirectoriesAreReused() throws Exception {
+        try (var pool = new SandboxPool(1)) {
+            awaitIdle(pool, 1);
+            var first = pool.sandbox();
+            var directory = first.getSandbox();
+            first.runTest((File dir) -> first.createResource("some/file", "content".getBytes()));
+            awaitRecycling(pool);
+            // The directory was kept, but emptied
+            assertTrue(directory.isDirectory());
+            assertEquals(0, directory.list().length);
+
+            var second = pool.sandbox();
+            assertEquals(directory, second.getSandbox());
+            second.cleanup();
+            awaitRecycling(pool);
+            assertEquals(2, pool.statistics().hits());
+            assertEquals(1.0, pool.statistics().hitRate());
+        }
+    }
+
+    @Test
+    public void testMissesCreateNewDirectories() throws Exception {
+        try (var pool = new SandboxPool(1)) {
+            var first = pool.sandbox();
+            var second = pool.sandbox();
+            assertTrue(second.getSandbox().isDirectory());
+            assertFalse(first.getSandbox().equals(second.getSandbox()));
+            first.cleanup();
+            second.cleanup();
+            awaitRecycling(pool);
+            var statistics = pool.statistics();
+            assertEquals(2, statistics.hits() + statistics.misses());
+            assertTrue(statistics.misses() >= 1);
+            // Only one of them fits in the pool
+            assertEquals(1, statistics.idle());
+        }
+    }
+
+    @Test
+    public void testCleanupTwice() throws Exception {
+        try (var pool = new SandboxPool(3)) {
+            awaitIdle(pool, 3);
+            var sb = pool.sandbox();
+            pool.sandbox();
+            pool.sandbox();
+            // As when runTest cleans up and then the extension does too
+            sb.runTest((File dir) -> sb.createResource("file", "content".getBytes()));
+            sb.cleanup();
+            awaitRecycling(pool);
+            assertEquals(1, pool.statistics().idle());
+            var first = pool.sandbox();
+            var second = pool.sandbox();
+            assertFalse(first.getSandbox().equals(second.getSandbox()));
+        }
+    }
+
+    @Test
+    public void testCloseRemovesIdleDirectories() throws Exception {
+        var pool = new SandboxPool(2);
+        var sb = pool.sandbox();
+        var directory = sb.getSandbox();
+        Files.writeString(new File(directory, "file").toPath(), "content");
+        sb.cleanup();
+        pool.close();
+        assertFalse(directory.exists());
+        assertThrows(IllegalStateException.class, pool::sandbox);
+    }
+}
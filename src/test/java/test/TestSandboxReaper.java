@@ -0,0 +1,87 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxReaper {
+
+    // PID of a process that is already over
+    private static long deadPid() throws Exception {
+        var java = ProcessHandle.current().info().command().orElse("java");
+        var process = new ProcessBuilder(java, "-version").start();
+        process.getErrorStream().transferTo(OutputStream.nullOutputStream());
+        process.waitFor();
+        return process.pid();
+    }
+
+    @Test
+    public void testOwnName() {
+        var sb = Sandbox.sandbox();
+        try {
+            var name = sb.getRoot().getFileName().toString();
+            assertTrue(name.startsWith(SandboxReaper.OWNER), name);
+            assertFalse(SandboxReaper.isOrphan(name));
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testIsOrphan() throws Exception {
+        var self = ProcessHandle.current().pid();
+        var dead = deadPid();
+        assertTrue(SandboxReaper.isOrphan(SandboxReaper.LOCAL + dead + "-0-1-123"));
+        // Same PID, but another process
+        assertTrue(SandboxReaper.isOrphan(SandboxReaper.LOCAL + self + "-1000-1-123"));
+        // Another host, or container, whose processes cannot be told from here
+        assertFalse(SandboxReaper.isOrphan(SandboxReaper.PREFIX + "0123456789abcdef-" + dead + "-0-1-123"));
+        assertFalse(SandboxReaper.isOrphan("tmp123"));
+        assertFalse(SandboxReaper.isOrphan(SandboxReaper.LOCAL + "abc-0-1"));
+    }
+
+    @Test
+    public void testReap() throws Exception {
+        var sb = Sandbox.sandbox();
+        try {
+            var base = sb.getRoot();
+            var dead = deadPid();
+            var orphan = SandboxReaper.LOCAL + dead + "-0-";
+            var remote = SandboxReaper.PREFIX + "0123456789abcdef-" + dead + "-0-1-123/file";
+            sb.createResource(orphan + "1-123/some/file", new byte[] { 1 });
+            sb.createResource(orphan + "1-123.snapshot1/file", new byte[] { 1 });
+            sb.createResource(SandboxReaper.OWNER + "1-123/file", new byte[] { 1 });
+            sb.createResource(remote, new byte[] { 1 });
+            sb.createResource("tmp123/file", new byte[] { 1 });
+            assertEquals(5, SandboxReaper.reap(base, Integer.MAX_VALUE));
+            try (var entries = Files.list(base)) {
+                assertEquals(3, entries.count());
+            }
+            assertTrue(Files.exists(base.resolve(remote)));
+            assertTrue(Files.exists(base.resolve(SandboxReaper.OWNER + "1-123/file")));
+            assertTrue(Files.exists(base.resolve("tmp123/file")));
+        } finally {
+            sb.cleanup();
+        }
+    }
+
+    @Test
+    public void testRate() throws Exception {
+        var sb = Sandbox.sandbox();
+        try {
+            var orphan = SandboxReaper.LOCAL + deadPid() + "-0-1-123/";
+            for (var i = 0; i < 20; i++) sb.createResource(orphan + i, new byte[0]);
+            var start = System.nanoTime();
+            assertEquals(21, SandboxReaper.reap(sb.getRoot(), 100));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(190)) >= 0);
+        } finally {
+            sb.cleanup();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSandboxSnapshot {
+
+    @Test
+    public void testRestore() {
+        var sb = Sandbox.sandbox();
+        sb.runTestInRoot((Path root) -> {
+            for (var i = 0; i < 20; i++) sb.createResourceAsPath("data/" + i, "content " + i, UTF_8);
+            sb.createResourceAsPath("data/nested/deep", "deep", UTF_8);
+            try (var snapshot = sb.snapshot()) {
+                assertEquals(21, snapshot.files());
+                assertTrue(snapshot.restore().isEmpty());
+
+                Files.writeString(root.resolve("data/0"), "changed");
+                // Same size
+                Files.writeString(root.resolve("data/1"), "CONTENT 1");
+                Files.delete(root.resolve("data/2"));
+                Files.writeString(root.resolve("data/new"), "new");
+                sb.createResourceAsPath("other/a/b", "b", UTF_8);
+                Files.delete(root.resolve("data/nested/deep"));
+                Files.delete(root.resolve("data/nested"));
+
+                assertEquals(new SandboxSnapshot.Delta(2, 2, 2), snapshot.restore());
+                for (var i = 0; i < 20; i++)
+                    assertEquals("content " + i, Files.readString(root.resolve("data/" + i)));
+                assertEquals("deep", Files.readString(root.resolve("data/nested/deep")));
+                assertFalse(Files.exists(root.resolve("data/new")));
+                assertFalse(Files.exists(root.resolve("other")));
+                assertTrue(snapshot.restore().isEmpty());
+            }
+        });
+    }
+
+    @Test
+    public void testRacy() {
+        var sb = Sandbox.sandbox();
+        sb.runTestInRoot((Path root) -> {
+            var file = sb.createResourceAsPath("file", "content", UTF_8);
+            var modified = Files.getLastModifiedTime(file);
+            try (var snapshot = sb.snapshot()) {
+                assertEquals(modified, Files.getLastModifiedTime(file));
+                // Written again within the same timestamp, as on a filesystem with coarse timestamps
+                Files.writeString(file, "CONTENT");
+                Files.setLastModifiedTime(file, modified);
+                assertEquals(new SandboxSnapshot.Delta(0, 0, 1), snapshot.restore());
+                assertEquals("content", Files.readString(file));
+                assertEquals(modified, Files.getLastModifiedTime(file));
+            }
+        });
+    }
+
+    @Test
+    public void testTouchedButUnchanged() {
+        var sb = Sandbox.sandbox();
+        sb.runTestInRoot((Path root) -> {
+            var file = sb.createResourceAsPath("file", "content", UTF_8);
+            var snapshot = sb.snapshot();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            assertTrue(snapshot.restore().isEmpty());
+            // Same size, different contents: noticed through the hash
+            Files.writeString(file, "CONTENT");
+            assertEquals(new SandboxSnapshot.Delta(0, 0, 1), snapshot.restore());
+            assertEquals("content", Files.readString(file));
+        });
+    }
+
+    @Test
+    public void testStoreIsRemoved() throws Exception {
+        var sb = Sandbox.sandbox();
+        sb.createResource("file", "content", UTF_8);
+        var root = sb.getRoot();
+        sb.snapshot();
+        var store = root.resolveSibling(root.getFileName() + ".snapshot1");
+        assertTrue(Files.isDirectory(store));
+        try (var list = Files.list(root)) {
+            // Nothing of the snapshot inside the sandbox
+            assertEquals(1, list.count());
+        }
+        sb.cleanup();
+        assertFalse(Files.exists(store));
+    }
+
+    @Test
+    public void testInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            sb.createResourceAsPath("a/b", "b", UTF_8);
+            var snapshot = sb.snapshot();
+            Files.writeString(root.resolve("a/b"), "bb");
+            assertEquals(new SandboxSnapshot.Delta(0, 0, 1), snapshot.restore());
+            assertEquals("b", Files.readString(root.resolve("a/b")));
+        });
+    }
+}
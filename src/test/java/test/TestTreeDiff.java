@@ -0,0 +1,77 @@
+package test;
+
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTreeDiff {
+
+    @Test
+    public void testMatches() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            sb.copyResourceTree("tree", "out");
+            sb.assertMatches("tree", "out");
+            assertTrue(sb.diff("/tree/", "/out").isEmpty());
+        });
+    }
+
+    @Test
+    public void testDifferences() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            sb.copyResourceTree("tree", "out");
+            Files.writeString(dir.toPath().resolve("out/sub/b.txt"), "bb");
+            Files.writeString(dir.toPath().resolve("out/a.txt"), "x");
+            Files.delete(dir.toPath().resolve("out/other/d.txt"));
+            sb.createResource("out/extra.txt", "extra", UTF_8);
+            var diff = sb.diff("tree", "out");
+            assertEquals(List.of("other/d.txt"), diff.missing());
+            assertEquals(List.of("extra.txt"), diff.extra());
+            assertEquals(
+                List.of(new TreeDiff.Difference("a.txt", 0, 1, 1), new TreeDiff.Difference("sub/b.txt", 1, 1, 2)),
+                diff.differing()
+            );
+            var failure = assertThrows(AssertionFailedError.class, () -> sb.assertMatches("tree", "out"));
+            assertTrue(failure.getMessage().contains("Differing: sub/b.txt at byte 1"), failure.getMessage());
+        });
+    }
+
+    @Test
+    public void testInMemory() {
+        var sb = Sandbox.inMemory();
+        sb.runTestInRoot((Path root) -> {
+            sb.copyResourceTreeAsPath("tree", "/");
+            sb.assertMatches("tree");
+        });
+    }
+
+    @Test
+    public void testLargeFiles() {
+        var sb = Sandbox.sandbox();
+        sb.runTest((File dir) -> {
+            var content = new byte[(int) (3 * TreeDiff.MAP_THRESHOLD)];
+            new Random(42).nextBytes(content);
+            var expected = sb.createResource("expected", content).toPath();
+            var same = sb.createResource("same", content).toPath();
+            content[content.length - 10]++;
+            var different = sb.createResource("different", content).toPath();
+            var shorter = sb.createResource("shorter", Arrays.copyOf(content, 2_000_000)).toPath();
+            assertEquals(-1, TreeDiff.mismatch(expected, same));
+            assertEquals(content.length - 10, TreeDiff.mismatch(expected, different));
+            assertEquals(2_000_000, TreeDiff.mismatch(expected, shorter));
+            assertEquals(2_000_000, TreeDiff.mismatch(shorter, expected));
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package test.sandbox;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import test.Sandbox;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class TestSandboxFixtures {
+
+    // Sandboxes populated by the fixture, and sandboxes used by the tests
+    private final static Set<Path> populated = ConcurrentHashMap.newKeySet();
+    private final static Set<Path> used = ConcurrentHashMap.newKeySet();
+
+    @SandboxFixture
+    static void fixture(Sandbox sb) {
+        populated.add(sb.getRoot());
+        sb.createResourceAsPath("data.txt", "data", UTF_8);
+    }
+
+    // With the default scope, the fixture runs on the sandbox itself, which is writable
+    @SandboxTest
+    public void testMethodScope(Sandbox sb) throws Exception {
+        used.add(sb.getRoot());
+        var data = sb.getRoot().resolve("data.txt");
+        Assertions.assertEquals("data", Files.readString(data));
+        Files.writeString(data, "changed");
+    }
+
+    @SandboxTest(scope = SandboxTest.Scope.RUN, storage = SandboxTest.Storage.MEMORY)
+    public void testRunScopeInMemory(Sandbox sb) throws Exception {
+        Assertions.assertEquals("data", Files.readString(sb.getRoot().resolve("data.txt")));
+    }
+
+    // Every invocation starts from the state the fixture left
+    @ParameterizedTest
+    @ValueSource(strings = { "first", "second", "third" })
+    @SandboxTemplate(reuse = true)
+    public void testReusedSandbox(String value, Sandbox sb) throws Exception {
+        used.add(sb.getRoot());
+        var data = sb.getRoot().resolve("data.txt");
+        Assertions.assertEquals("data", Files.readString(data));
+        Assertions.assertFalse(Files.exists(sb.getRoot().resolve("other.txt")));
+        Files.writeString(data, value);
+        sb.createResourceAsPath("other.txt", value, UTF_8);
+    }
+
+    // Only the sandboxes of the threads are populated
+    @SandboxTest(threads = 4)
+    public void testConcurrent(Sandbox sb) throws Exception {
+        used.add(sb.getRoot());
+        Assertions.assertEquals("data", Files.readString(sb.getRoot().resolve("data.txt")));
+    }
+
+    // Other than the sandboxes of the tests, the fixture only populates the in-memory base of the run scope
+    @AfterAll
+    public static void checkPopulated() {
+        for (var root: populated) {
+            var base = root.getFileSystem() != FileSystems.getDefault();
+            Assertions.assertTrue(used.contains(root) || base, root::toString);
+        }
+    }
+}
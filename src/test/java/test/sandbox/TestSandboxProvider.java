@@ -1,7 +1,20 @@
 package test.sandbox;
 
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import test.Sandbox;
+import test.SandboxPool;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class TestSandboxProvider {
 
@@ -11,4 +24,136 @@ public class TestSandboxProvider {
         Assertions.assertNotNull(rootDirectory);
         Assertions.assertTrue(rootDirectory.isDirectory());
     }
+
+    private static volatile Path pooledRoot;
+
+    @SandboxTest(pooled = true)
+    public void testPooledSandbox(Sandbox sb) {
+        pooledRoot = sb.getRoot();
+        var rootDirectory = sb.getSandbox();
+        Assertions.assertTrue(rootDirectory.isDirectory());
+        Assertions.assertEquals(0, rootDirectory.list().length);
+        sb.createResource("some/file", "content".getBytes());
+    }
+
+    private static volatile Sandbox backgroundSandbox;
+
+    @SandboxTest(backgroundCleanup = true)
+    public void testBackgroundCleanup(Sandbox sb) {
+        backgroundSandbox = sb;
+        Assertions.assertTrue(sb.getSandbox().isDirectory());
+        sb.createResource("some/file", "content".getBytes());
+    }
+
+    @SandboxTest(storage = SandboxTest.Storage.MEMORY)
+    public void testInMemorySandbox(Sandbox sb) throws Exception {
+        var root = sb.getRoot();
+        Assertions.assertNotEquals(FileSystems.getDefault(), root.getFileSystem());
+        var file = sb.createResourceAsPath("some/file", "content".getBytes());
+        Assertions.assertEquals("content", Files.readString(file));
+    }
+
+    @SandboxTest(base = "target/sandboxes")
+    public void testBaseDirectory(Sandbox sb) {
+        Assertions.assertEquals(Path.of("target/sandboxes").toAbsolutePath(), sb.getRoot().getParent());
+    }
+
+    // The sandbox cleaned up in the background was moved out of the way at once, and eventually deleted
+    @AfterAll
+    public static void checkBackgroundRemoved() throws Exception {
+        var root = backgroundSandbox.getRoot();
+        Assertions.assertFalse(Files.exists(root));
+        backgroundSandbox.metrics().cleanedUp().get(10, TimeUnit.SECONDS);
+        var prefix = root.getFileName() + ".";
+        try (var siblings = Files.list(root.getParent())) {
+            Assertions.assertTrue(siblings.noneMatch(p -> p.getFileName().toString().startsWith(prefix)));
+        }
+        Assertions.assertEquals(7, backgroundSandbox.metrics().treeBytes());
+    }
+
+    // Waits for the shared pool to be pre-warmed, so that it has room for the directory of the pooled test when it is
+    //  given back
+    @BeforeAll
+    public static void awaitPooled() throws Exception {
+        var pool = SandboxPool.shared();
+        var capacity = Integer.getInteger(SandboxPool.SIZE_PROPERTY, 2 * Runtime.getRuntime().availableProcessors());
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.statistics().idle() < capacity && System.nanoTime() < deadline) Thread.sleep(5);
+    }
+
+    // The directory of the pooled test was emptied and given back to the shared pool, which hands it out again
+    @AfterAll
+    public static void checkPooledRecycled() throws Exception {
+        var pool = SandboxPool.shared();
+        while (pool.statistics().backlog() > 0) Thread.sleep(5);
+        var taken = new ArrayList<Sandbox>();
+        try {
+            while (pool.statistics().idle() > 0) taken.add(pool.sandbox());
+            var recycled = taken.stream().filter(sb -> sb.getRoot().equals(pooledRoot)).findFirst();
+            Assertions.assertTrue(recycled.isPresent(), () -> pooledRoot + " not recycled");
+            Assertions.assertEquals(0, recycled.get().getSandbox().list().length);
+        } finally {
+            taken.forEach(Sandbox::cleanup);
+        }
+    }
+
+    private final static Set<Path> concurrentRoots = ConcurrentHashMap.newKeySet();
+
+    @SandboxTest(threads = 8)
+    public void testConcurrentSandboxes(Sandbox sb) {
+        Assertions.assertNotNull(sb);
+        Assertions.assertTrue(concurrentRoots.add(sb.getRoot()));
+        Assertions.assertTrue(Files.isDirectory(sb.getRoot()));
+        sb.createResource("some/file", "content".getBytes());
+    }
+
+    @SandboxTest
+    public void testMetrics(Sandbox sb) {
+        sb.createResource("some/file", "content".getBytes());
+        Assertions.assertEquals(7, sb.metrics().bytesWritten());
+    }
+
+    @Test
+    public void testMetricsSummary() {
+        var light = Sandbox.sandbox();
+        light.runTest((File dir) -> {});
+        var heavy = Sandbox.sandbox();
+        heavy.runTest((File dir) -> { heavy.createResource("file", new byte[1000]); });
+        var summary = new MetricsSummary(1);
+        summary.add("light", light.metrics());
+        summary.add("heavy", heavy.metrics());
+        var lines = summary.render().lines().toList();
+        Assertions.assertEquals("Sandbox metrics of 2 tests", lines.get(0));
+        Assertions.assertEquals("Slowest:", lines.get(1));
+        Assertions.assertEquals("Heaviest:", lines.get(3));
+        Assertions.assertTrue(lines.get(4).contains("1000 bytes  heavy"), lines.get(4));
+        Assertions.assertEquals(5, lines.size());
+    }
+
+    // Sandboxes not cleaned up are not ranked by lifetime, and their unknown values are labelled as such
+    @Test
+    public void testMetricsSummaryUnknown() {
+        var done = Sandbox.sandbox();
+        done.runTest((File dir) -> {});
+        var running = Sandbox.sandbox();
+        try {
+            var summary = new MetricsSummary(2);
+            summary.add("done", done.metrics());
+            summary.add("running", running.metrics());
+            var rendered = summary.render();
+            Assertions.assertFalse(rendered.contains("-0.000"), rendered);
+            var lines = rendered.lines().toList();
+            Assertions.assertEquals("Slowest:", lines.get(1));
+            Assertions.assertTrue(lines.get(2).contains("done (creation "), lines.get(2));
+            Assertions.assertEquals("Heaviest:", lines.get(3));
+            var heaviest = lines.subList(4, lines.size());
+            Assertions.assertEquals(2, heaviest.size());
+            Assertions.assertTrue(
+                heaviest.stream().anyMatch(l -> l.contains("running") && l.contains("unknown size at cleanup")),
+                rendered
+            );
+        } finally {
+            running.cleanup();
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package test.sandbox;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import test.Sandbox;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class TestSandboxScopes {
+
+    private final static AtomicInteger fixtureRuns = new AtomicInteger();
+    private final static Set<Path> roots = ConcurrentHashMap.newKeySet();
+
+    @SandboxFixture
+    static void fixture(Sandbox base) {
+        fixtureRuns.incrementAndGet();
+        base.createResource("fixture/data.txt", "data", UTF_8);
+    }
+
+    @SandboxTest(scope = SandboxTest.Scope.CLASS)
+    public void testFirst(Sandbox sb) throws Exception {
+        checkAndChange(sb);
+    }
+
+    @SandboxTest(scope = SandboxTest.Scope.CLASS)
+    public void testSecond(Sandbox sb) throws Exception {
+        checkAndChange(sb);
+    }
+
+    @SandboxTest(scope = SandboxTest.Scope.CLASS, threads = 4)
+    public void testConcurrent(Sandbox sb) throws Exception {
+        checkAndChange(sb);
+    }
+
+    // Whatever some test does to its sandbox is not seen by the others
+    private static void checkAndChange(Sandbox sb) throws Exception {
+        Assertions.assertTrue(roots.add(sb.getRoot()));
+        var data = sb.getRoot().resolve("fixture/data.txt");
+        Assertions.assertEquals("data", Files.readString(data));
+        Files.delete(data);
+        sb.createResource("fixture/data.txt", "changed", UTF_8);
+        sb.createResource("fixture/other.txt", "other", UTF_8);
+    }
+
+    @AfterAll
+    public static void checkFixtureRanOnce() {
+        Assertions.assertEquals(1, fixtureRuns.get());
+        Assertions.assertEquals(6, roots.size());
+    }
+}
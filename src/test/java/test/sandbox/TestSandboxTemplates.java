@@ -0,0 +1,94 @@
+package test.sandbox;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import test.Sandbox;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class TestSandboxTemplates {
+
+    private final static Set<Path> parameterizedRoots = ConcurrentHashMap.newKeySet();
+    private final static Set<Path> repeatedRoots = ConcurrentHashMap.newKeySet();
+    private final static Set<Path> runTestRoots = ConcurrentHashMap.newKeySet();
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 3 })
+    @SandboxTemplate
+    public void testParameterized(int value, Sandbox sb) throws Exception {
+        Assertions.assertTrue(parameterizedRoots.add(sb.getRoot()));
+        Assertions.assertEquals(0, sb.getSandbox().list().length);
+        sb.createResource("value", String.valueOf(value), UTF_8);
+    }
+
+    @RepeatedTest(3)
+    @SandboxTemplate(reuse = true)
+    public void testRepeatedReusingSandbox(Sandbox sb) {
+        repeatedRoots.add(sb.getRoot());
+        Assertions.assertEquals(0, sb.getSandbox().list().length);
+        sb.createResource("some/file", "content", UTF_8);
+    }
+
+    // Cleaning up the reused sandbox leaves it for the next invocations
+    @RepeatedTest(3)
+    @SandboxTemplate(reuse = true)
+    public void testReusedSandboxRunTest(Sandbox sb) {
+        runTestRoots.add(sb.getRoot());
+        var ctx = sb.runTest((File dir) -> {
+            Assertions.assertEquals(0, dir.list().length);
+            sb.createResource("file", "content", UTF_8);
+        });
+        Assertions.assertNull(ctx.result());
+        Assertions.assertTrue(Files.isDirectory(sb.getRoot()));
+    }
+
+    // An invocation cannot start while the previous one still holds the reused sandbox
+    @Test
+    public void testReusedSandboxConcurrently() {
+        var reused = new SandboxProvider.ReusedSandbox(Sandbox.sandbox(), false);
+        var sb = reused.next();
+        sb.createResource("some/file", "content", UTF_8);
+        Assertions.assertThrows(ExtensionConfigurationException.class, reused::next);
+        reused.release();
+        Assertions.assertSame(sb, reused.next());
+        Assertions.assertEquals(0, sb.getSandbox().list().length);
+        reused.release();
+        reused.close();
+        Assertions.assertFalse(Files.exists(sb.getRoot()));
+    }
+
+    @TestFactory
+    @SandboxTemplate(storage = SandboxTest.Storage.MEMORY)
+    public Stream<DynamicTest> testFactory(Sandbox sb) {
+        return IntStream.range(0, 3).mapToObj(i -> DynamicTest.dynamicTest("file " + i, () -> {
+            var file = sb.createResourceAsPath("file" + i, "content " + i, UTF_8);
+            Assertions.assertEquals(sb.getRoot(), file.getParent());
+            Assertions.assertEquals("content " + i, Files.readString(file));
+        }));
+    }
+
+    @AfterAll
+    public static void checkSandboxes() {
+        Assertions.assertEquals(3, parameterizedRoots.size());
+        Assertions.assertEquals(1, repeatedRoots.size());
+        Assertions.assertEquals(1, runTestRoots.size());
+        for (var root: runTestRoots) Assertions.assertFalse(Files.exists(root));
+        for (var root: parameterizedRoots) Assertions.assertFalse(Files.exists(root));
+        for (var root: repeatedRoots) Assertions.assertFalse(Files.exists(root));
+    }
+}